@@ -0,0 +1,34 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @return - a silent logger (no handlers, nothing is logged).
+     */
+    static Logger silentLogger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        return logger;
+    }
+
+    /**
+     * Creates a configuration from the defaults and the given key/value pairs, with logging turned off.
+     */
+    static Config config(String... keysAndValues) {
+        Properties properties = new Properties();
+        properties.setProperty("LogLevel", "OFF");
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        return new Config(silentLogger(), properties);
+    }
+}
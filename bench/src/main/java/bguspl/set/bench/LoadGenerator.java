@@ -0,0 +1,331 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameListener;
+import bguspl.set.NullUserInterface;
+import bguspl.set.RandomSource;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An end to end load generator for the dealer: boots a headless game (Dealer, Table and N players driven by
+ * synthetic key presses instead of a keyboard or the AI) and measures how many claims per second the dealer
+ * adjudicates, the claim to verdict latency and the dealer thread's CPU time, for growing numbers of players.
+ * <p>
+ * Every player makes claims at a fixed rate: it presses the slots of a legal set on the table (with the valid
+ * ratio probability) or of random cards that are not a set, removing its other tokens first. A player waits for
+ * the verdict of its claim before making the next one.
+ * <p>
+ * Usage: java -cp bench/target/benchmarks.jar bguspl.set.bench.LoadGenerator [key=value ...]
+ * <ul>
+ * <li>players=1,10,100,1000 - the player counts to run (one trial each)</li>
+ * <li>rate=10 - the claims per second of each player</li>
+ * <li>valid=0.5 - the part of the claims that are legal sets</li>
+ * <li>seconds=10 - the duration of each trial</li>
+ * <li>any other key is a game configuration property (e.g. FeatureCount=6, PenaltyFreezeSeconds=1)</li>
+ * </ul>
+ * The default game has no freezes or delays, and a short turn timeout (2 seconds) so a table without a legal set
+ * does not stall the legal claims for long. When a game ends (no sets left in the deck) a new game starts, until the
+ * end of the trial.
+ */
+public class LoadGenerator {
+
+    private final Config config;
+    private final int players;
+    private final double rate;
+    private final double valid;
+    private final long seconds;
+
+    private final Util util;
+    private final AtomicLongArray claimNanos;
+    private final AtomicIntegerArray queued;
+    private final AtomicLongArray lastPressNanos;
+    private volatile TableView view;
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder[] verdicts = {new LongAdder(), new LongAdder(), new LongAdder()}; // cancelled, penalty, point
+    private final long[] latencies = new long[1 << 22];
+    private final AtomicInteger latencyCount = new AtomicInteger();
+
+    private LoadGenerator(Properties properties, int players, double rate, double valid, long seconds) {
+        Properties game = new Properties();
+        game.setProperty("LogLevel", "OFF");
+        game.setProperty("TurnTimeoutSeconds", "2");
+        game.setProperty("TurnTimeoutWarningSeconds", "0");
+        game.setProperty("PointFreezeSeconds", "0");
+        game.setProperty("PenaltyFreezeSeconds", "0");
+        game.setProperty("TableDelaySeconds", "0");
+        game.setProperty("EndGamePauseSeconds", "0");
+        game.putAll(properties);
+        game.setProperty("HumanPlayers", "0");
+        game.setProperty("ComputerPlayers", Integer.toString(players));
+        this.config = new Config(Benchmarks.silentLogger(), game);
+        this.players = players;
+        this.rate = rate;
+        this.valid = valid;
+        this.seconds = seconds;
+
+        util = new UtilImpl(config);
+        claimNanos = new AtomicLongArray(players);
+        queued = new AtomicIntegerArray(players);
+        lastPressNanos = new AtomicLongArray(players);
+    }
+
+    /**
+     * Follows the cards and tokens on the table through the user interface calls.
+     */
+    private class TableView extends NullUserInterface {
+
+        private final int[] slotCards;
+        private final boolean[][] tokens;
+
+        TableView(int slots, int players) {
+            slotCards = new int[slots];
+            Arrays.fill(slotCards, -1);
+            tokens = new boolean[players][slots];
+        }
+
+        @Override
+        public synchronized void placeCard(int card, int slot) {
+            slotCards[slot] = card;
+        }
+
+        @Override
+        public synchronized void removeCard(int slot) {
+            slotCards[slot] = -1;
+            removeTokens(slot);
+        }
+
+        @Override
+        public synchronized void placeCards(int[] cards, int[] slots) {
+            for (int i = 0; i < cards.length; i++) slotCards[slots[i]] = cards[i];
+        }
+
+        @Override
+        public synchronized void clearTable() {
+            Arrays.fill(slotCards, -1);
+            removeTokens();
+        }
+
+        @Override
+        public synchronized void replaceSlots(int[] slots, int[] cards) {
+            for (int i = 0; i < slots.length; i++) {
+                slotCards[slots[i]] = cards[i];
+                removeTokens(slots[i]);
+            }
+        }
+
+        @Override
+        public synchronized void placeToken(int player, int slot) {
+            tokens[player][slot] = true;
+            queued.decrementAndGet(player);
+        }
+
+        @Override
+        public synchronized void removeToken(int player, int slot) {
+            tokens[player][slot] = false;
+            queued.decrementAndGet(player);
+        }
+
+        @Override
+        public synchronized void removeTokens() {
+            for (boolean[] playerTokens : tokens) Arrays.fill(playerTokens, false);
+        }
+
+        @Override
+        public synchronized void removeTokens(int slot) {
+            for (boolean[] playerTokens : tokens) playerTokens[slot] = false;
+        }
+
+        /**
+         * @return - the slots of a legal set on the table, or of cards that are not a set if legal is false (null if
+         *           there is none).
+         */
+        synchronized int[] pick(boolean legal, SplittableRandom random) {
+            List<Integer> cards = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            for (int slot = 0; slot < slotCards.length; slot++)
+                if (slotCards[slot] >= 0) {
+                    cards.add(slotCards[slot]);
+                    slots.add(slot);
+                }
+            if (cards.size() < config.featureSize) return null;
+            if (legal) {
+                List<int[]> sets = util.findSets(cards, Integer.MAX_VALUE);
+                if (sets.isEmpty()) return null;
+                int[] set = sets.get(random.nextInt(sets.size()));
+                return Arrays.stream(set).map(card -> slots.get(cards.indexOf(card))).toArray();
+            }
+            for (int attempt = 0; attempt < 10; attempt++) {
+                int[] picked = random.ints(0, cards.size()).distinct().limit(config.featureSize).toArray();
+                if (!util.testSet(Arrays.stream(picked).map(cards::get).toArray()))
+                    return Arrays.stream(picked).map(slots::get).toArray();
+            }
+            return null;
+        }
+
+        synchronized boolean[] tokensOf(int player) {
+            return tokens[player].clone();
+        }
+    }
+
+    private final GameListener listener = new GameListener() {
+        @Override
+        public void keyPress(int player, int slot) {
+            queued.incrementAndGet(player);
+        }
+
+        @Override
+        public void claim(int player, int[] slots) {
+            claims.increment();
+            claimNanos.set(player, System.nanoTime());
+        }
+
+        @Override
+        public void verdict(int player, int verdict) {
+            long latency = System.nanoTime() - claimNanos.get(player);
+            verdicts[verdict + 1].increment();
+            int index = latencyCount.getAndIncrement();
+            if (index < latencies.length) latencies[index] = latency;
+            claimNanos.set(player, 0);
+        }
+    };
+
+    /**
+     * Makes the next claim of a player (or the part of it the player's key press queue accepts).
+     */
+    private void tick(Player player, SplittableRandom random) {
+        TableView view = this.view;
+        int id = player.id;
+        if (claimNanos.get(id) != 0) return; // waiting for a verdict
+        if (queued.get(id) > 0 && System.nanoTime() - lastPressNanos.get(id) < 200_000_000L)
+            return; // the previous presses are not on the table yet
+        queued.set(id, 0);
+        int[] slots = view.pick(random.nextDouble() < valid, random);
+        if (slots == null) return;
+
+        boolean[] tokens = view.tokensOf(id);
+        boolean[] wanted = new boolean[tokens.length];
+        for (int slot : slots) wanted[slot] = true;
+        lastPressNanos.set(id, System.nanoTime());
+        for (int slot = 0; slot < tokens.length; slot++) // remove the other tokens first
+            if (tokens[slot] && !wanted[slot] && !player.keyPressed(slot)) return;
+        for (int slot : slots)
+            if (!tokens[slot] && !player.keyPressed(slot)) return;
+    }
+
+    private void run() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        long cpu = 0;
+        int games = 0;
+        while (System.nanoTime() < deadline) {
+            cpu += playGame(deadline, threads);
+            games++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        int count = Math.min(latencyCount.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long checked = verdicts[0].sum() + verdicts[1].sum() + verdicts[2].sum();
+        System.out.printf("%7d %9.0f %6d %9d %10.1f %7d %7d %7d %9s %9s %9s %9s %9s %7.1f%%%n",
+                this.players, this.players * rate, games, claims.sum(), checked / elapsed,
+                verdicts[2].sum(), verdicts[1].sum(), verdicts[0].sum(),
+                micros(sorted, 0.5), micros(sorted, 0.9), micros(sorted, 0.99), micros(sorted, 0.999),
+                count == 0 ? "-" : Long.toString(sorted[count - 1] / 1000), 100.0 * cpu / 1e9 / elapsed);
+    }
+
+    /**
+     * Plays a game until it is over or the deadline passes.
+     *
+     * @return - the CPU time of the dealer thread in nanoseconds.
+     */
+    private long playGame(long deadline, ThreadMXBean threads) throws InterruptedException {
+        view = new TableView(config.tableSize, players);
+        for (int i = 0; i < players; i++) {
+            claimNanos.set(i, 0);
+            queued.set(i, 0);
+        }
+        Env env = new Env(Benchmarks.silentLogger(), config, view, util, listener, new RandomSource(1));
+        Table table = new Table(env);
+        Player[] players = new Player[this.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, true);
+
+        Thread dealerThread = new Thread(dealer, "dealer");
+        ScheduledExecutorService drivers = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "load-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        dealerThread.start();
+        long period = Math.max(1, (long) (1e9 / rate));
+        for (Player player : players) {
+            SplittableRandom random = new SplittableRandom(player.id);
+            drivers.scheduleAtFixedRate(() -> tick(player, random),
+                    ThreadLocalRandom.current().nextLong(period), period, TimeUnit.NANOSECONDS);
+        }
+
+        long cpu = 0;
+        while (dealerThread.isAlive() && System.nanoTime() < deadline) {
+            long measured = threads.getThreadCpuTime(dealerThread.getId()); // -1 once the dealer thread is done
+            if (measured > 0) cpu = measured;
+            dealerThread.join(Math.max(1, Math.min(100, (deadline - System.nanoTime()) / 1_000_000L)));
+        }
+        drivers.shutdownNow();
+        dealer.terminate();
+        dealerThread.join();
+        return cpu;
+    }
+
+    private static String micros(long[] sorted, double percentile) {
+        if (sorted.length == 0) return "-";
+        return Long.toString(sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))] / 1000);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) properties.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        int[] counts = Arrays.stream(properties.getProperty("players", "1,10,100,1000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        double rate = Double.parseDouble(String.valueOf(properties.getOrDefault("rate", "10")));
+        double valid = Double.parseDouble(String.valueOf(properties.getOrDefault("valid", "0.5")));
+        long seconds = Long.parseLong(String.valueOf(properties.getOrDefault("seconds", "10")));
+        properties.remove("players");
+        properties.remove("rate");
+        properties.remove("valid");
+        properties.remove("seconds");
+
+        System.out.printf("claims per player per second: %s, valid claims: %s, %d seconds per trial%n", rate, valid, seconds);
+        System.out.printf("%7s %9s %6s %9s %10s %7s %7s %7s %9s %9s %9s %9s %9s %8s%n", "players", "offered/s", "games", "claims",
+                "checked/s", "points", "penalty", "cancel", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)",
+                "dealer");
+        for (int players : counts)
+            new LoadGenerator(properties, players, rate, valid, seconds).run();
+    }
+}
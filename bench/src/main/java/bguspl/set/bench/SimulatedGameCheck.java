@@ -0,0 +1,84 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.NullUserInterface;
+import bguspl.set.host.Game;
+import bguspl.set.host.GameHost;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An end to end check of the simulated time mode: plays headless games of computer players in simulated time (with
+ * the default timeouts, freezes and delays, so a game lasts tens of minutes of game time) and fails unless every game
+ * finishes within a bound of real time. The games are played both with a dealer thread and threads per player and
+ * with the event loop.
+ * <p>
+ * Usage: java -cp bench/target/benchmarks.jar bguspl.set.bench.SimulatedGameCheck [key=value ...]
+ * <ul>
+ * <li>games=4 - the games to play at once in each mode</li>
+ * <li>seconds=120 - the real time all the games of a mode must finish in</li>
+ * <li>any other key is a game configuration property (e.g. ComputerPlayers=8, TurnTimeoutSeconds=10)</li>
+ * </ul>
+ * The exit status is 1 if a game did not finish in time.
+ */
+public class SimulatedGameCheck {
+
+    public static void main(String[] args) throws InterruptedException {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) properties.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        int games = Integer.parseInt(String.valueOf(properties.getOrDefault("games", "4")));
+        long seconds = Long.parseLong(String.valueOf(properties.getOrDefault("seconds", "120")));
+        properties.remove("games");
+        properties.remove("seconds");
+
+        boolean passed = true;
+        for (boolean eventLoop : new boolean[]{false, true}) {
+            Properties game = new Properties();
+            game.setProperty("LogLevel", "OFF");
+            game.setProperty("HumanPlayers", "0");
+            game.setProperty("ComputerPlayers", "4");
+            game.setProperty("EndGamePauseSeconds", "0");
+            game.putAll(properties);
+            game.setProperty("Headless", "True");
+            game.setProperty("SimulatedTime", "True");
+            game.setProperty("EventLoop", Boolean.toString(eventLoop));
+            passed &= run(new Config(Benchmarks.silentLogger(), game), eventLoop ? "event loop" : "threads", games,
+                    seconds);
+        }
+        if (!passed) System.exit(1);
+    }
+
+    /**
+     * Plays the games and waits for them until the deadline.
+     *
+     * @return - true iff all the games finished in time.
+     */
+    private static boolean run(Config config, String mode, int games, long seconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        int threads = games * (1 + 2 * config.players);
+        List<Game> submitted = new ArrayList<>();
+        int finished = 0;
+        try (GameHost host = new GameHost(threads, Benchmarks.silentLogger())) {
+            for (int i = 0; i < games; i++) submitted.add(host.submit(config, new NullUserInterface(), config.randomSeed + i));
+            for (Game game : submitted) {
+                if (game.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) finished++;
+                else {
+                    System.out.printf("%s: game %d did not finish in %d seconds, scores %s%n", mode, game.id, seconds,
+                            Arrays.toString(game.scores()));
+                    game.stop();
+                }
+            }
+        }
+        System.out.printf("%s: %d of %d games finished in %.1f s%n", mode, finished, games,
+                (System.nanoTime() - start) / 1e9);
+        return finished == games;
+    }
+}
@@ -0,0 +1,122 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.NullUserInterface;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmarks of the Table: player threads place and remove tokens on random slots while a dealer thread
+ * keeps replacing cards, which removes the tokens of the replaced slot. The user interface is stubbed out and the
+ * table delay is zero, so the results only measure the Table locking.
+ * <p>
+ * The group runs 1 dealer thread and 4 player threads by default. Change it with -tg dealers,players (the group
+ * methods are ordered by name, e.g. -tg 1,16), or run the main method for 2 to 64 player threads. SampleTime mode reports the latency percentiles of each operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    /**
+     * The maximum number of player threads (one player per thread).
+     */
+    static final int MAX_PLAYERS = 64;
+
+    @State(Scope.Group)
+    public static class TableState {
+
+        Config config;
+        Table table;
+        Player[] players;
+        private int nextPlayer;
+
+        @Setup
+        public void setup() {
+            config = Benchmarks.config("HumanPlayers", "0", "ComputerPlayers", Integer.toString(MAX_PLAYERS),
+                    "TableDelaySeconds", "0");
+            Env env = new Env(Benchmarks.silentLogger(), config, new NullUserInterface(), new UtilImpl(config));
+            table = new Table(env);
+            players = new Player[config.players];
+            Dealer dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, true);
+
+            int[] cards = new int[config.tableSize];
+            int[] slots = new int[config.tableSize];
+            for (int slot = 0; slot < slots.length; slot++) {
+                cards[slot] = slot;
+                slots[slot] = slot;
+            }
+            table.placeCards(cards, slots);
+        }
+
+        synchronized Player nextPlayer() {
+            return players[nextPlayer++ % players.length];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PlayerState {
+
+        Player player;
+        SplittableRandom random;
+
+        @Setup
+        public void setup(TableState state) {
+            player = state.nextPlayer();
+            random = new SplittableRandom(player.id);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DealerState {
+
+        int slot;
+    }
+
+    /**
+     * A player toggles its token on a random slot (removes it if there is one, places it otherwise).
+     */
+    @Benchmark
+    @Group("table")
+    @GroupThreads(4)
+    public boolean toggleToken(TableState state, PlayerState player) {
+        int slot = player.random.nextInt(state.config.tableSize);
+        if (state.table.removeToken(player.player, slot)) return false;
+        state.table.placeToken(player.player, slot);
+        return true;
+    }
+
+    /**
+     * The dealer removes the card of the next slot (with its tokens) and places it back.
+     */
+    @Benchmark
+    @Group("table")
+    @GroupThreads(1)
+    public void replaceCard(TableState state, DealerState dealer) {
+        int slot = dealer.slot;
+        dealer.slot = (slot + 1) % state.config.tableSize;
+        state.table.removeCard(slot);
+        state.table.placeCard(slot, slot);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int players = 2; players <= MAX_PLAYERS; players *= 2)
+            new Runner(new OptionsBuilder()
+                    .include(TableBenchmark.class.getSimpleName())
+                    .threadGroups(1, players)
+                    .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the set finding and validation kernels of UtilImpl, over the deck shape (feature size and count),
+ * the part of the deck searched and the number of sets looked for. Run the main method (or -prof gc) to get the
+ * allocation rate per operation next to the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    /**
+     * The number of cards in a set (and the number of values of each feature).
+     */
+    @Param({"3", "4"})
+    public int featureSize;
+
+    /**
+     * The number of features of a card.
+     */
+    @Param({"4", "5"})
+    public int featureCount;
+
+    /**
+     * The findSets parameters (only crossed with the findSets benchmark).
+     */
+    @State(Scope.Thread)
+    public static class Search {
+
+        /**
+         * The part of the deck searched, in percents (a table of 12 cards is about 15% of the standard deck).
+         */
+        @Param({"15", "50", "100"})
+        public int fillPercent;
+
+        /**
+         * The maximum number of sets to look for.
+         */
+        @Param({"1", "10"})
+        public int count;
+
+        private List<Integer> deck;
+
+        @Setup
+        public void setup(UtilBenchmark shape) {
+            List<Integer> all = new ArrayList<>(shape.deckSize);
+            for (int card = 0; card < shape.deckSize; card++) all.add(card);
+            Collections.shuffle(all, new Random(7));
+            deck = new ArrayList<>(all.subList(0, Math.max(shape.featureSize, shape.deckSize * fillPercent / 100)));
+        }
+    }
+
+    private static final int SAMPLES = 1024;
+
+    private Util util;
+    private int deckSize;
+    private int[] cards;
+    private int[][] candidates;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Config config = Benchmarks.config("FeatureSize", Integer.toString(featureSize),
+                "FeatureCount", Integer.toString(featureCount));
+        util = new UtilImpl(config);
+        deckSize = config.deckSize;
+        Random random = new Random(42);
+
+        List<Integer> all = new ArrayList<>(deckSize);
+        for (int card = 0; card < deckSize; card++) all.add(card);
+
+        cards = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) cards[i] = random.nextInt(config.deckSize);
+
+        // about half legal sets and half random cards, so testSet takes both the early and the late exits
+        candidates = new int[SAMPLES][];
+        List<int[]> sets = util.findSets(all, SAMPLES / 2);
+        for (int i = 0; i < SAMPLES; i++) {
+            if (i % 2 == 0 && !sets.isEmpty()) {
+                candidates[i] = sets.get(i / 2 % sets.size());
+            } else {
+                candidates[i] = new int[featureSize];
+                for (int j = 0; j < featureSize; j++) candidates[i][j] = random.nextInt(config.deckSize);
+            }
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int[] cardToFeatures() {
+        return util.cardToFeatures(cards[nextIndex()]);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(candidates[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(candidates[nextIndex()]);
+    }
+
+    @Benchmark
+    public void findSets(Search search, Blackhole blackhole) {
+        blackhole.consume(util.findSets(search.deck, search.count));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
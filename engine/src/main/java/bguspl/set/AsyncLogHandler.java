@@ -0,0 +1,184 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A log handler that takes the log records off the game threads: records are put in a bounded ring buffer and a
+ * background writer thread formats and writes them to the wrapped handlers in batches (one flush per batch).
+ * When the buffer is full the overflow policy decides whether the logging thread blocks or a record is dropped;
+ * dropped records are counted and reported in the log.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * What to do with a record when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the writer makes room (nothing is lost, but logging may stall the game threads).
+         */
+        BLOCK,
+        /**
+         * Drop the new record.
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest buffered record to make room for the new one.
+         */
+        DROP_OLDEST
+    }
+
+    private final Handler[] targets;
+    private final BlockingQueue<LogRecord> buffer;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final Thread writer;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private long written; // guarded by this
+    private long reportedDrops;
+    private volatile boolean closed;
+
+    public AsyncLogHandler(int capacity, int batchSize, OverflowPolicy policy, Handler... targets) {
+        this.targets = targets;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.policy = policy;
+        this.writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Replaces the handlers of a logger with a single asynchronous handler that writes to them.
+     *
+     * @return - the installed handler.
+     */
+    public static AsyncLogHandler install(Logger logger, int capacity, int batchSize, OverflowPolicy policy) {
+        Handler[] handlers = logger.getHandlers();
+        for (Handler h : handlers)
+            if (h instanceof AsyncLogHandler) return (AsyncLogHandler) h; // already installed
+        for (Handler h : handlers) logger.removeHandler(h);
+        AsyncLogHandler handler = new AsyncLogHandler(capacity, batchSize, policy, handlers);
+        logger.addHandler(handler);
+        return handler;
+    }
+
+    /**
+     * Installs the handler on a logger as configured (LogAsync and the log buffer settings), if the logger has handlers
+     * of its own. Called at startup by the program that owns the logger.
+     */
+    public static void install(Logger logger, Config config) {
+        if (config.logAsync && logger.getHandlers().length > 0)
+            install(logger, config.logBufferSize, config.logBatchSize, config.logOverflowPolicy);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        published.incrementAndGet();
+        switch (policy) {
+            case BLOCK:
+                try {
+                    buffer.put(record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop();
+                }
+                break;
+            case DROP_NEWEST:
+                if (!buffer.offer(record)) drop();
+                break;
+            case DROP_OLDEST:
+                while (!buffer.offer(record))
+                    if (buffer.poll() != null) drop();
+                break;
+        }
+    }
+
+    private void drop() {
+        dropped.incrementAndGet();
+        synchronized (this) {
+            written++; // a dropped record will never be written, don't let flush wait for it
+            notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            buffer.drainTo(batch, batchSize - 1);
+            reportDrops();
+            for (LogRecord record : batch)
+                for (Handler target : targets)
+                    target.publish(record);
+            for (Handler target : targets) target.flush();
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    private void reportDrops() {
+        long drops = dropped.get();
+        if (drops == reportedDrops) return;
+        LogRecord record = new LogRecord(Level.WARNING, (drops - reportedDrops) + " log records were dropped (buffer full)");
+        reportedDrops = drops;
+        for (Handler target : targets) target.publish(record);
+    }
+
+    /**
+     * Blocks until all the records published before the call are written.
+     */
+    @Override
+    public void flush() {
+        long target = published.get();
+        synchronized (this) {
+            try {
+                while (written < target && writer.isAlive())
+                    wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Handler handler : targets) handler.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        writer.interrupt();
+        for (Handler handler : targets) handler.close();
+    }
+
+    @Override
+    public synchronized void setFormatter(Formatter newFormatter) {
+        super.setFormatter(newFormatter);
+        for (Handler handler : targets) handler.setFormatter(newFormatter);
+    }
+
+    /**
+     * @return - the number of records dropped so far because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,89 @@
+package bguspl.set;
+
+/**
+ * The source of time for the game: every timeout, freeze and delay goes through the clock, so the game can run either
+ * in real time or in simulated time (see SimulatedClock).
+ */
+public interface Clock {
+
+    /**
+     * The real time clock.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        @Override
+        public void await(Object monitor, long millis) throws InterruptedException {
+            monitor.wait(millis);
+        }
+
+        @Override
+        public void signal(Object monitor) {
+            monitor.notifyAll();
+        }
+    };
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * Sleeps for the specified amount of time (like Thread.sleep).
+     * @param millis - the time to sleep in milliseconds.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on a monitor until it is notified or the specified amount of time passes (like Object.wait, the caller
+     * must hold the monitor). As with Object.wait, the method may return early, so callers must re-check their
+     * condition.
+     * @param monitor - the monitor to wait on.
+     * @param millis  - the maximum time to wait in milliseconds (0 to wait until notified).
+     */
+    void await(Object monitor, long millis) throws InterruptedException;
+
+    /**
+     * Wakes all the threads waiting on a monitor (like Object.notifyAll, the caller must hold the monitor). The threads
+     * that await a monitor must be woken through the clock, so in simulated time it knows they are about to run.
+     * @param monitor - the monitor to notify.
+     */
+    void signal(Object monitor);
+
+    /**
+     * Lets the other game threads run: in simulated time, waits until all the other registered threads are waiting on
+     * the clock, without letting the time pass (the threads that settle at the same time go on one at a time, in
+     * order). In real time it only yields.
+     */
+    default void settle() {
+        Thread.yield();
+    }
+
+    /**
+     * Announces a game thread that is about to start and will register: in simulated time, the time does not advance
+     * until it has registered (so it cannot miss the first deadlines). Called by the thread that starts it.
+     */
+    default void starting() {
+    }
+
+    /**
+     * Registers the calling thread as a game thread. In simulated time, the time only advances when all the game
+     * threads are waiting on the clock.
+     */
+    default void register() {
+    }
+
+    /**
+     * Unregisters the calling thread (must be called before a registered thread terminates).
+     */
+    default void unregister() {
+    }
+}
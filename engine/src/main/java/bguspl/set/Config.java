@@ -0,0 +1,517 @@
+package bguspl.set;
+
+import bguspl.set.events.Backpressure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Properties;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * This class holds all the game's configuration data
+ */
+public class Config {
+
+    /**
+     * Whether log records are written by a background thread (true) or by the logging thread itself (see
+     * AsyncLogHandler.install)
+     */
+    public final boolean logAsync;
+
+    /**
+     * The number of log records the asynchronous log buffer can hold
+     */
+    public final int logBufferSize;
+
+    /**
+     * The maximum number of log records the background writer writes between flushes
+     */
+    public final int logBatchSize;
+
+    /**
+     * What to do with a log record when the asynchronous log buffer is full
+     */
+    public final AsyncLogHandler.OverflowPolicy logOverflowPolicy;
+
+    /**
+     * Random spin cycles for Config::randomSpin (for debugging / testing)
+     */
+    public final long randomSpinMin;
+    public final long randomSpinMax;
+
+    /**
+     * The number of features on the cards (e.g. shape, color etc.)
+     */
+    public final int featureCount;
+
+    /**
+     * The number of choices for each feature (e.g. red, green, blue)
+     */
+    public final int featureSize;
+
+    /**
+     * The total number of cards in the deck (i.e. featureSize ^ featureCount)
+     */
+    public final int deckSize;
+
+    /**
+     * The number of human players in the game.
+     */
+    public final int humanPlayers;
+
+    /**
+     * The number of computer players (i.e. input is simulated)
+     */
+    public final int computerPlayers;
+
+    /**
+     * The total number of players (human + computer) in the game
+     */
+    public final int players;
+
+    /**
+     * Whether to print out hints to the console or not
+     */
+    public final boolean hints;
+
+    /**
+     * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
+     */
+    public final long turnTimeoutMillis;
+
+    /**
+     * The number of milliseconds the turn countdown warning should be displayed
+     */
+    public final long turnTimeoutWarningMillis;
+
+    /**
+     * The number of milliseconds a player gets frozen for when he scores a point
+     */
+    public final long penaltyFreezeMillis;
+
+    /**
+     * The number of milliseconds a player gets frozen for when penalized
+     */
+    public final long pointFreezeMillis;
+
+    /**
+     * The number of milliseconds to delay before removing/placing a card on the table
+     */
+    public final long tableDelayMillis;
+
+    /**
+     * The number of milliseconds a computer player waits between two key presses, in both engines (0: the threaded
+     * computer players press as fast as they can, and the event loop presses every millisecond)
+     */
+    public final long computerDelayMillis;
+
+    /**
+     * The number of milliseconds to pause at the end of the game before closing
+     */
+    public final long endGamePauseMillies;
+
+    /**
+     * Whether the game runs without a user interface (no AWT classes are loaded, the results are printed)
+     */
+    public final boolean headless;
+
+    /**
+     * Whether the game runs in simulated time (timeouts, freezes and delays pass instantly, see SimulatedClock)
+     */
+    public final boolean simulatedTime;
+
+    /**
+     * Whether the game runs on the single threaded event loop engine instead of the dealer and player threads
+     */
+    public final boolean eventLoop;
+
+    /**
+     * The port the network server listens on for remote players (0 for no server)
+     */
+    public final int netPort;
+
+    /**
+     * The number of selector threads of the network server
+     */
+    public final int netThreads;
+
+    /**
+     * The number of bytes that may wait to be sent to a network client (a slower client is disconnected)
+     */
+    public final int netBufferBytes;
+
+    /**
+     * Whether the network server also serves spectators the table, token, score and countdown deltas (on NetPort)
+     */
+    public final boolean spectators;
+
+    /**
+     * The number of spectator delta frames between keyframes of the full state
+     */
+    public final int spectatorKeyframeEvery;
+
+    /**
+     * Whether the user interface calls are published as a stream of game events, with the user interface, the network
+     * broadcast and the spectator channel as subscribers (instead of one chain of decorators called by the game threads)
+     */
+    public final boolean eventStream;
+
+    /**
+     * The number of game events that may wait for a subscriber
+     */
+    public final int eventQueueCapacity;
+
+    /**
+     * What to do with a game event for the user interface subscriber when its queue is full
+     */
+    public final Backpressure uiEventBackpressure;
+
+    /**
+     * What to do with a game event for the network broadcast subscriber when its queue is full
+     */
+    public final Backpressure netEventBackpressure;
+
+    /**
+     * What to do with a game event for the spectator channel subscriber when its queue is full
+     */
+    public final Backpressure spectatorEventBackpressure;
+
+    /**
+     * What to do with a game event for the shared state subscriber when its queue is full
+     */
+    public final Backpressure sharedStateEventBackpressure;
+
+    /**
+     * The memory mapped file the live game state is exported to, for other local processes (empty for none)
+     */
+    public final String sharedStateFile;
+
+    /**
+     * The file the dealer writes periodic checkpoints of the game to (empty for none)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The time between checkpoints, in milliseconds
+     */
+    public final long checkpointIntervalMillis;
+
+    /**
+     * The checkpoint file the game is resumed from (empty to start a new game)
+     */
+    public final String restoreCheckpoint;
+
+    /**
+     * Whether the game metrics are exposed as a JMX MBean
+     */
+    public final boolean metricsJmx;
+
+    /**
+     * The file the game metrics are written to periodically, in the OpenMetrics text format (empty for none)
+     */
+    public final String metricsFile;
+
+    /**
+     * The number of milliseconds between two writes of the metrics file
+     */
+    public final long metricsIntervalMillis;
+
+    /**
+     * Whether every key press and claim is traced from the input thread to the verdict (per-stage latency histograms)
+     */
+    public final boolean traceClaims;
+
+    /**
+     * The number of slowest claim traces written to the log at the end of the game (when tracing claims)
+     */
+    public final int traceSlowest;
+
+    /**
+     * The seed of the game's random choices (0 for a new random seed every game)
+     */
+    public final long randomSeed;
+
+    /**
+     * The file the players' key presses are recorded to, for a later replay (empty for no recording)
+     */
+    public final String recordTrace;
+
+    /**
+     * The recorded key presses file to replay instead of the players' input (empty for a normal game)
+     */
+    public final String replayTrace;
+
+    /**
+     * Whether a replay runs at the recorded pace (true) or as fast as possible, in simulated time (false)
+     */
+    public final boolean replayRealTime;
+
+    /**
+     * The file the binary game journal is written to (empty for no journal)
+     */
+    public final String journalFile;
+
+    /**
+     * The number of records kept in the game journal (older records are overwritten)
+     */
+    public final long journalCapacity;
+
+    /**
+     * The names of the players to display on the screen
+     * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
+     */
+    public final String[] playerNames;
+
+    /**
+     * The number of rows in the grid of cards on the table (and on the screen)
+     */
+    public final int rows;
+
+    /**
+     * The number of columns in the grid of cards on the table (and on the screen)
+     */
+    public final int columns;
+
+    /**
+     * The total number of cells in the table grid
+     */
+    public final int tableSize;
+
+    /**
+     * The width (in pixels) of each cell
+     */
+    public final int cellWidth;
+
+    /**
+     * The height (in pixels) of each cell
+     */
+    public final int cellHeight;
+
+    /**
+     * The Width (in pixeks) of player name cell
+     */
+    public final int playerCellWidth;
+
+    /**
+     * The Height (in pixeks) of player name cell
+     */
+    public final int playerCellHeight;
+
+    /**
+     * The size of the displayed font
+     */
+    public final int fontSize;
+
+    /**
+     * The number of times per second the user interface is refreshed
+     */
+    public final int uiFrameRate;
+
+    /**
+     * The file in which the decoded card images are cached as a single atlas (empty for no caching)
+     */
+    public final String cardAtlasFile;
+
+    /**
+     * How the cards are drawn: "images" (from the png files), "procedural" (from the card features) or "auto"
+     * (images if there are png files for the configured deck, procedural otherwise)
+     */
+    public final String cardRendering;
+
+    /**
+     * The maximum number of procedurally drawn card images kept in memory
+     */
+    public final int cardCacheSize;
+
+    /**
+     * The number of players above which the scrollable scoreboard replaces the players score panel
+     */
+    public final int scoreboardThreshold;
+
+    /**
+     * The number of top players listed in the scoreboard, after the human players (0 lists all players)
+     */
+    public final int scoreboardTopN;
+
+    /**
+     * The scancodes of the keyboard input data for each player
+     * Notes:
+     * 1. This should correspond to the number of human players and the dimensions of the table card grid (i.e. the
+     * first n codes are for the first row, the 2nd n codes are for the 2nd row etc., n being the number of columns).
+     * 2. If the number of entries here does not match the number of human players a warning will be issued
+     */
+    private final int[][] playerKeys;
+
+    /**
+     * The default scan codes data (this is the same as in the default config.properties file)
+     */
+    private static final String[] playerKeysDefaults = {
+            "81,87,69,82,65,83,68,70,90,88,67,86",
+            "85,73,79,80,74,75,76,59,77,44,46,47"};
+
+    /**
+     * Attempts to read the config properties from the current working directory. Otherwise, tries to load them
+     * as a resource.
+     *
+     * @param filename - the name of the configuration file.
+     * @return - a properties object with the configuration file contents.
+     */
+    private static Properties loadProperties(String filename, Logger logger) {
+
+        Properties properties = new Properties();
+
+        if (filename == null || filename.isEmpty())
+            logger.severe("running with default configuration.");
+        else try (InputStream is = Files.newInputStream(Paths.get(filename))) {
+            properties.load(is);
+        } catch (IOException e) {
+            logger.severe("cannot read configuration file " + filename + " trying from resources.");
+            try (InputStream is = Config.class.getClassLoader().getResourceAsStream(filename)) {
+                properties.load(is);
+                logger.severe("configuration file was loaded from resources directory.");
+            } catch (IOException | InvalidPathException ex) {
+                logger.severe("warning: cannot read config file from the resources directory either. Using defaults.");
+            }
+        }
+
+        return properties;
+    }
+
+    public Config(Logger logger, String configFilename) {
+        this(logger, loadProperties(configFilename, logger));
+    }
+
+    public Config(Logger logger, Properties properties) {
+
+        // logger settings
+        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        setLoggerLevelAndFormat(logger, logLevel, logFormat);
+        logAsync = Boolean.parseBoolean(properties.getProperty("LogAsync", "True"));
+        logBufferSize = Integer.parseInt(properties.getProperty("LogBufferSize", "8192"));
+        logBatchSize = Integer.parseInt(properties.getProperty("LogBatchSize", "256"));
+        logOverflowPolicy = AsyncLogHandler.OverflowPolicy.valueOf(properties.getProperty("LogOverflowPolicy", "BLOCK").trim().toUpperCase());
+
+        // for debugging
+        randomSpinMin = Long.parseLong(properties.getProperty("RandomSpinMin", "0"));
+        randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
+        if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
+            logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+
+        // cards settings
+        featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
+        featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
+        deckSize = (int) Math.pow(featureSize, featureCount);
+
+        // gameplay settings
+        humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
+        computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        players = humanPlayers + computerPlayers;
+
+        hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
+        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
+        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
+        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
+        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        computerDelayMillis = (long) (Double.parseDouble(properties.getProperty("ComputerDelaySeconds", "0.05")) * 1000.0);
+        endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+
+        headless = Boolean.parseBoolean(properties.getProperty("Headless", "False").trim());
+        simulatedTime = Boolean.parseBoolean(properties.getProperty("SimulatedTime", "False").trim());
+        eventLoop = Boolean.parseBoolean(properties.getProperty("EventLoop", "False").trim());
+        netPort = Integer.parseInt(properties.getProperty("NetPort", "0").trim());
+        netThreads = Integer.parseInt(properties.getProperty("NetThreads", "2").trim());
+        netBufferBytes = Integer.parseInt(properties.getProperty("NetBufferBytes", "65536").trim());
+        spectators = Boolean.parseBoolean(properties.getProperty("Spectators", "False").trim());
+        spectatorKeyframeEvery = Integer.parseInt(properties.getProperty("SpectatorKeyframeEvery", "256").trim());
+        eventStream = Boolean.parseBoolean(properties.getProperty("EventStream", "False").trim());
+        eventQueueCapacity = Integer.parseInt(properties.getProperty("EventQueueCapacity", "4096").trim());
+        uiEventBackpressure = Backpressure.valueOf(properties.getProperty("UiEventBackpressure", "RESYNC").trim().toUpperCase());
+        netEventBackpressure = Backpressure.valueOf(properties.getProperty("NetEventBackpressure", "RESYNC").trim().toUpperCase());
+        spectatorEventBackpressure = Backpressure.valueOf(properties.getProperty("SpectatorEventBackpressure", "RESYNC").trim().toUpperCase());
+        sharedStateEventBackpressure = Backpressure.valueOf(properties.getProperty("SharedStateEventBackpressure", "RESYNC").trim().toUpperCase());
+        sharedStateFile = properties.getProperty("SharedStateFile", "").trim();
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointIntervalMillis = (long) (Double.parseDouble(properties.getProperty("CheckpointIntervalSeconds", "10")) * 1000.0);
+        restoreCheckpoint = properties.getProperty("RestoreCheckpoint", "").trim();
+        metricsJmx = Boolean.parseBoolean(properties.getProperty("MetricsJmx", "False").trim());
+        metricsFile = properties.getProperty("MetricsFile", "").trim();
+        metricsIntervalMillis = (long) (Double.parseDouble(properties.getProperty("MetricsIntervalSeconds", "10")) * 1000.0);
+        traceClaims = Boolean.parseBoolean(properties.getProperty("TraceClaims", "False").trim());
+        traceSlowest = Integer.parseInt(properties.getProperty("TraceSlowest", "10").trim());
+        long seed = Long.parseLong(properties.getProperty("RandomSeed", "0").trim());
+        randomSeed = seed != 0 ? seed : System.nanoTime();
+        recordTrace = properties.getProperty("RecordTrace", "").trim();
+        replayTrace = properties.getProperty("ReplayTrace", "").trim();
+        replayRealTime = !properties.getProperty("ReplaySpeed", "realtime").trim().equalsIgnoreCase("fast");
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        journalCapacity = Long.parseLong(properties.getProperty("JournalCapacity", "1048576"));
+
+        // ui settings
+        String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
+        playerNames = new String[players];
+        Arrays.setAll(playerNames, i -> i < names.length ? names[i].trim() : "Player " + (i + 1));
+
+        rows = Integer.parseInt(properties.getProperty("Rows", "3"));
+        columns = Integer.parseInt(properties.getProperty("Columns", "4"));
+        tableSize = rows * columns;
+        cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
+        cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
+        playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
+        playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
+        fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        uiFrameRate = Integer.parseInt(properties.getProperty("UiFrameRate", "60"));
+        cardAtlasFile = properties.getProperty("CardAtlasFile", "").trim();
+        cardRendering = properties.getProperty("CardRendering", "auto").trim().toLowerCase();
+        cardCacheSize = Integer.parseInt(properties.getProperty("CardCacheSize", "64"));
+        scoreboardThreshold = Integer.parseInt(properties.getProperty("ScoreboardThreshold", "8"));
+        scoreboardTopN = Integer.parseInt(properties.getProperty("ScoreboardTopN", "20"));
+
+        // keyboard input data
+        playerKeys = new int[players][rows * columns];
+        for (int i = 0; i < players; i++) {
+            String defaultCodes = "";
+            if (i < 2) defaultCodes = playerKeysDefaults[i];
+            String playerKeysString = properties.getProperty("PlayerKeys" + (i + 1), defaultCodes);
+            if (playerKeysString.length() > 0) {
+                String[] codes = playerKeysString.split(",");
+                if (codes.length != tableSize)
+                    logger.severe("warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + tableSize + ").");
+                for (int j = 0; j < Math.min(codes.length, tableSize); ++j) // parse the key codes string
+                    playerKeys[i][j] = Integer.parseInt(codes[j]);
+            }
+        }
+    }
+
+    public int[] playerKeys(int player) {
+        return playerKeys[player];
+    }
+
+    /**
+     * Sets the level of a logger and the format of its handlers.
+     */
+    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
+        Handler[] handlers = logger.getHandlers();
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
+            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+            // not synchronized: with the asynchronous handler only the writer thread formats records
+            @Override
+            public String format(LogRecord lr) {
+                return String.format(format, new Date(lr.getMillis()),
+                        lr.getLevel().getLocalizedName(), formatMessage(lr)
+                );
+            }
+        }));
+        logger.setLevel(level);
+    }
+}
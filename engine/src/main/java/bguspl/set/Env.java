@@ -0,0 +1,49 @@
+package bguspl.set;
+
+import bguspl.set.metrics.Metrics;
+
+import java.util.logging.Logger;
+
+public class Env {
+
+    public final Logger logger;
+    public final Config config;
+    public final UserInterface ui;
+    public final Util util;
+    public final GameListener listener;
+    public final RandomSource random;
+    public final Clock clock;
+    public final Metrics metrics;
+    public final GameThreads threads;
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, GameListener.NONE, new RandomSource(config.randomSeed));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameListener listener, RandomSource random) {
+        this(logger, config, ui, util, listener, random, Clock.SYSTEM);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameListener listener, RandomSource random,
+               Clock clock) {
+        this(logger, config, ui, util, listener, random, clock, new Metrics(config.players));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameListener listener, RandomSource random,
+               Clock clock, Metrics metrics) {
+        this(logger, config, ui, util, listener, random, clock, metrics, GameThreads.DEDICATED);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameListener listener, RandomSource random,
+               Clock clock, Metrics metrics, GameThreads threads) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+        this.util = util;
+        this.listener = listener;
+        this.random = random;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.threads = threads;
+    }
+}
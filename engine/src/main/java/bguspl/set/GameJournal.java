@@ -0,0 +1,263 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compact binary journal of the game events, written to a memory-mapped file.
+ * The file is a header followed by a ring of fixed size records, mapped in segments. Writers claim a record with a
+ * single atomic increment and write it in place, so recording an event costs a few nanoseconds and never blocks.
+ * When the ring is full the oldest records are overwritten.
+ * <p>
+ * The journal is placed in the user interface chain (forwarding every call to the next user interface) and is also
+ * the game listener, so it sees the table, token, freeze and score events as well as claims, verdicts and reshuffles.
+ *
+ * @see JournalReader
+ */
+public class GameJournal implements UserInterface, GameListener, AutoCloseable {
+
+    /**
+     * File layout.
+     * header: magic (int), version (int), record size (int), records per segment (int), capacity (long),
+     *         start time in epoch millis (long), records written (long), padding up to HEADER_BYTES.
+     * record: game clock millis since start (long), sequence (int), type (short), player (short), a (int), b (int), value (long).
+     */
+    static final int MAGIC = 0x5345544a; // "SETJ"
+    static final int VERSION = 3;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 32;
+    static final int HEADER_WRITTEN_OFFSET = 32;
+    static final int SEGMENT_RECORDS = 1 << 20; // 32MB per mapped segment
+
+    /**
+     * Record types.
+     */
+    public static final short CARD_PLACED = 1;   // a: slot, b: card
+    public static final short CARD_REMOVED = 2;  // a: slot
+    public static final short TABLE_CLEARED = 3;
+    public static final short TOKEN_PLACED = 4;  // player, a: slot
+    public static final short TOKEN_REMOVED = 5; // player, a: slot
+    public static final short TOKENS_REMOVED = 6; // a: slot (-1 for all slots)
+    public static final short CLAIM = 7;         // player, a: number of slots, b and value: the first slots (see claimSlot)
+    public static final short VERDICT = 8;       // player, a: verdict (see GameListener)
+    public static final short FREEZE = 9;        // player, value: millis
+    public static final short SCORE = 10;        // player, a: score
+    public static final short RESHUFFLE = 11;
+    public static final short WINNER = 12;       // player
+    public static final short KEY_PRESS = 13;    // player, a: slot
+    public static final short CLAIM_SLOTS = 14;  // player, a: index of the first slot, b and value: the next slots of the claim
+
+    /**
+     * The number of slots a CLAIM or CLAIM_SLOTS record holds (as u16 values: 2 in b, then 4 in value).
+     */
+    public static final int SLOTS_PER_RECORD = 6;
+
+    static final String[] TYPE_NAMES = {"", "card-placed", "card-removed", "table-cleared", "token-placed",
+            "token-removed", "tokens-removed", "claim", "verdict", "freeze", "score", "reshuffle", "winner", "key-press", "claim-slots"};
+
+    private final UserInterface ui;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long capacity;
+    private final Clock clock;
+    private final long startMillis;
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * @param path     - the journal file (overwritten).
+     * @param capacity - the number of records in the ring.
+     * @param clock    - the game clock (the records are stamped with its time).
+     * @param ui       - the next user interface in the chain (may be null).
+     */
+    public GameJournal(Path path, long capacity, Clock clock, UserInterface ui) throws IOException {
+        this.ui = ui;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.startMillis = clock.millis();
+
+        file = new RandomAccessFile(path.toFile(), "rw");
+        file.setLength(HEADER_BYTES + capacity * RECORD_BYTES);
+        FileChannel channel = file.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(SEGMENT_RECORDS)
+                .putLong(capacity).putLong(System.currentTimeMillis()).putLong(0L);
+
+        segments = new MappedByteBuffer[(int) ((capacity + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+        for (int i = 0; i < segments.length; i++) {
+            long records = Math.min(SEGMENT_RECORDS, capacity - (long) i * SEGMENT_RECORDS);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_BYTES + (long) i * SEGMENT_RECORDS * RECORD_BYTES, records * RECORD_BYTES);
+        }
+    }
+
+    /**
+     * Writes a record (thread safe, lock free).
+     */
+    public void record(short type, int player, int a, int b, long value) {
+        long sequence = cursor.getAndIncrement();
+        long index = sequence % capacity;
+        MappedByteBuffer segment = segments[(int) (index / SEGMENT_RECORDS)];
+        int offset = (int) (index % SEGMENT_RECORDS) * RECORD_BYTES;
+        segment.putLong(offset, clock.millis() - startMillis);
+        segment.putInt(offset + 8, (int) sequence);
+        segment.putShort(offset + 14, (short) player);
+        segment.putInt(offset + 16, a);
+        segment.putInt(offset + 20, b);
+        segment.putLong(offset + 24, value);
+        segment.putShort(offset + 12, type); // written last, a zero type marks an unwritten record
+    }
+
+    /**
+     * @return - the number of records written so far.
+     */
+    public long written() {
+        return cursor.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (header) {
+            header.putLong(HEADER_WRITTEN_OFFSET, cursor.get());
+            header.force();
+            for (MappedByteBuffer segment : segments) segment.force();
+        }
+        file.close();
+    }
+
+    @Override
+    public void keyPress(int player, int slot) {
+        record(KEY_PRESS, player, slot, 0, 0);
+    }
+
+    @Override
+    public void claim(int player, int[] slots) {
+        // the slots are kept in claim order, SLOTS_PER_RECORD per record
+        for (int first = 0; first == 0 || first < slots.length; first += SLOTS_PER_RECORD) {
+            int b = 0;
+            long value = 0;
+            for (int i = 0; i < SLOTS_PER_RECORD && first + i < slots.length; i++) {
+                int slot = slots[first + i] & 0xffff;
+                if (i < 2) b |= slot << 16 * i;
+                else value |= (long) slot << 16 * (i - 2);
+            }
+            if (first == 0) record(CLAIM, player, slots.length, b, value);
+            else record(CLAIM_SLOTS, player, first, b, value);
+        }
+    }
+
+    /**
+     * @return - the i-th slot (0 <= i < SLOTS_PER_RECORD) held by the b and value of a CLAIM or CLAIM_SLOTS record.
+     */
+    public static int claimSlot(int b, long value, int i) {
+        return i < 2 ? b >>> 16 * i & 0xffff : (int) (value >>> 16 * (i - 2) & 0xffff);
+    }
+
+    @Override
+    public void verdict(int player, int verdict) {
+        record(VERDICT, player, verdict, 0, 0);
+    }
+
+    @Override
+    public void reshuffle() {
+        record(RESHUFFLE, -1, 0, 0, 0);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        record(CARD_PLACED, -1, slot, card, 0);
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        record(CARD_REMOVED, -1, slot, 0, 0);
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        for (int i = 0; i < cards.length; i++) {
+            if (cards[i] >= 0) record(CARD_PLACED, -1, slots[i], cards[i], 0);
+            else record(CARD_REMOVED, -1, slots[i], 0, 0);
+        }
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        record(TABLE_CLEARED, -1, 0, 0, 0);
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; i++) {
+            record(TOKENS_REMOVED, -1, slots[i], 0, 0);
+            record(CARD_REMOVED, -1, slots[i], 0, 0);
+            if (cards[i] >= 0) record(CARD_PLACED, -1, slots[i], cards[i], 0);
+        }
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        record(TOKEN_PLACED, player, slot, 0, 0);
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        record(TOKENS_REMOVED, -1, -1, 0, 0);
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        record(TOKENS_REMOVED, -1, slot, 0, 0);
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        record(TOKEN_REMOVED, player, slot, 0, 0);
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        record(FREEZE, player, 0, 0, millies);
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        record(SCORE, player, score, 0, 0);
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        for (int player : players) record(WINNER, player, 0, 0, 0);
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
@@ -0,0 +1,115 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This interface contains the game events that are not part of the user interface (key presses, claims, verdicts and
+ * reshuffles). The table, token, freeze and score events are delivered through the UserInterface methods.
+ * All methods do nothing by default.
+ */
+public interface GameListener {
+
+    /**
+     * A listener that ignores all events.
+     */
+    GameListener NONE = new GameListener() {
+    };
+
+    /**
+     * The verdicts of a claim.
+     */
+    int VERDICT_CANCELLED = -1; // the claim was no longer a full set when checked (i.e. a card was replaced)
+    int VERDICT_PENALTY = 0;
+    int VERDICT_POINT = 1;
+
+    /**
+     * A key press of a player was accepted (i.e. queued for the player thread).
+     * @param player - the player id.
+     * @param slot   - the slot corresponding to the key pressed.
+     */
+    default void keyPress(int player, int slot) {
+    }
+
+    /**
+     * A player thread took the next key press of its queue and placed or removed the token (the presses are taken in
+     * the order they were accepted).
+     * @param player       - the player id.
+     * @param tableChanges - the number of changes made to the cards on the table before the token was placed or
+     *                       removed.
+     */
+    default void keyTaken(int player, int tableChanges) {
+    }
+
+    /**
+     * A player submitted a claim to the dealer.
+     * @param player - the player id.
+     * @param slots  - the slots of the player's tokens.
+     */
+    default void claim(int player, int[] slots) {
+    }
+
+    /**
+     * The dealer took the next claim of its queue to check it.
+     * @param player       - the player id.
+     * @param tableChanges - the number of changes made to the cards on the table so far.
+     */
+    default void claimTaken(int player, int tableChanges) {
+    }
+
+    /**
+     * The dealer checked a claim.
+     * @param player  - the player id.
+     * @param verdict - VERDICT_POINT, VERDICT_PENALTY or VERDICT_CANCELLED.
+     */
+    default void verdict(int player, int verdict) {
+    }
+
+    /**
+     * The dealer returned all the cards on the table to the deck due to a turn timeout.
+     */
+    default void reshuffle() {
+    }
+
+    /**
+     * Combines several listeners into one that delivers every event to each of them, in order.
+     * @param listeners - the listeners (null entries are skipped).
+     * @return - the combined listener.
+     */
+    static GameListener all(GameListener... listeners) {
+        GameListener[] targets = Arrays.stream(listeners).filter(Objects::nonNull).toArray(GameListener[]::new);
+        if (targets.length == 0) return NONE;
+        if (targets.length == 1) return targets[0];
+        return new GameListener() {
+            @Override
+            public void keyPress(int player, int slot) {
+                for (GameListener l : targets) l.keyPress(player, slot);
+            }
+
+            @Override
+            public void keyTaken(int player, int tableChanges) {
+                for (GameListener l : targets) l.keyTaken(player, tableChanges);
+            }
+
+            @Override
+            public void claim(int player, int[] slots) {
+                for (GameListener l : targets) l.claim(player, slots);
+            }
+
+            @Override
+            public void claimTaken(int player, int tableChanges) {
+                for (GameListener l : targets) l.claimTaken(player, tableChanges);
+            }
+
+            @Override
+            public void verdict(int player, int verdict) {
+                for (GameListener l : targets) l.verdict(player, verdict);
+            }
+
+            @Override
+            public void reshuffle() {
+                for (GameListener l : targets) l.reshuffle();
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package bguspl.set;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the long lived tasks of a game (the dealer, player and computer player loops): either each on a dedicated new
+ * thread, or on the threads of a shared executor (see GameHost), which must have a free thread for every task.
+ */
+public interface GameThreads {
+
+    /**
+     * A dedicated new thread per task.
+     */
+    GameThreads DEDICATED = (task, name) -> {
+        Thread thread = new Thread(task, name);
+        thread.start();
+        return new Handle() {
+            @Override
+            public void interrupt() {
+                thread.interrupt();
+            }
+
+            @Override
+            public void join() throws InterruptedException {
+                thread.join();
+            }
+        };
+    };
+
+    /**
+     * Starts a task.
+     *
+     * @param task - the task to run.
+     * @param name - the name of the task (the name of its thread while it runs).
+     * @return - a handle to interrupt and join the task.
+     */
+    Handle start(Runnable task, String name);
+
+    /**
+     * A running task.
+     */
+    interface Handle {
+
+        /**
+         * Interrupts the task (like Thread.interrupt; nothing happens if the task has finished).
+         */
+        void interrupt();
+
+        /**
+         * Waits for the task to finish (like Thread.join).
+         */
+        void join() throws InterruptedException;
+    }
+
+    /**
+     * Runs the tasks on the threads of an executor. A pooled thread takes the name of the task while it runs it, and
+     * an interrupt never outlives its task.
+     */
+    static GameThreads pooled(Executor executor) {
+        return (task, name) -> {
+            PooledTask pooled = new PooledTask(task, name);
+            executor.execute(pooled);
+            return pooled;
+        };
+    }
+
+    final class PooledTask implements Runnable, Handle {
+
+        private final Runnable task;
+        private final String name;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Thread runner; // guarded by this
+        private boolean interrupted; // guarded by this, for an interrupt before the task started
+
+        private PooledTask(Runnable task, String name) {
+            this.task = task;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            String poolName = thread.getName();
+            synchronized (this) {
+                runner = thread;
+                if (interrupted) thread.interrupt();
+            }
+            thread.setName(name);
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted(); // the next task on this thread starts clean
+                }
+                thread.setName(poolName);
+                done.countDown();
+            }
+        }
+
+        @Override
+        public synchronized void interrupt() {
+            interrupted = true;
+            if (runner != null) runner.interrupt();
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            done.await();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package bguspl.set;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A trace of the key presses the players made during a game, with the game clock time of each press, the game seed
+ * and the verdicts the presses led to. Together with the seed, the presses are all that is needed to replay the game
+ * (see TraceReplayer); the verdicts tell whether the replay reached the same outcome.
+ * <p>
+ * The game threads run concurrently, so the trace also records the orders they met in: how many presses its player
+ * thread had taken when each press came, how many changes the dealer had made to the cards when each press was taken
+ * (see GameListener.keyTaken), and the order the dealer checked the claims in (the order of the verdicts) with the
+ * changes it had made to the cards when it took each claim.
+ * <p>
+ * File format: magic (int), version (int), seed (long), number of presses (int), then per press: game clock millis
+ * since the trace started (long), player (short), slot (short), presses taken (int), then number of presses taken
+ * (int), then per press taken: player (short), table changes (int), then number of verdicts (int), then per verdict:
+ * player (short), verdict (byte, see GameListener), table changes (int), then the game clock millis the trace ended at
+ * (long).
+ */
+public class InputTrace implements GameListener {
+
+    private static final int MAGIC = 0x53455454; // "SETT"
+    private static final int VERSION = 3; // 3: the game seed gives other random streams (see RandomSource.stream)
+
+    private final long seed;
+    private final Clock clock;
+    private final long startMillis;
+    private long[] millis = new long[1024];
+    private int[] presses = new int[1024]; // player << 16 | slot
+    private int[] taken = new int[1024]; // the presses the player thread had taken when the press came
+    private int size;
+    private int[] takes = new int[1024]; // player
+    private int[] takeChanges = new int[1024]; // the table changes when the press was taken
+    private int takeCount;
+    private int[] takenCount = new int[0]; // per player
+    private int[] verdicts = new int[256]; // player << 8 | (verdict & 0xff)
+    private int verdictCount;
+    private int[] claimChanges = new int[256]; // the table changes when the claim was taken
+    private int claimCount;
+    private long endMillis;
+
+    // when replaying, per player: the table changes when it took each press
+    private int[][] changesBy;
+
+    /**
+     * Starts recording a new trace.
+     *
+     * @param clock - the game clock (the presses are timed by the game clock, so a trace of a game in simulated time
+     *              replays the same way).
+     */
+    public InputTrace(long seed, Clock clock) {
+        this.seed = seed;
+        this.clock = clock;
+        this.startMillis = clock.millis();
+    }
+
+    private InputTrace(long seed, long[] millis, int[] presses, int[] taken, int[] takes, int[] takeChanges,
+                       int[] verdicts, int[] claimChanges, long endMillis) {
+        this.seed = seed;
+        this.clock = null;
+        this.startMillis = 0;
+        this.millis = millis;
+        this.presses = presses;
+        this.taken = taken;
+        this.size = millis.length;
+        this.takes = takes;
+        this.takeChanges = takeChanges;
+        this.takeCount = takes.length;
+        this.verdicts = verdicts;
+        this.verdictCount = verdicts.length;
+        this.claimChanges = claimChanges;
+        this.claimCount = claimChanges.length;
+        this.endMillis = endMillis;
+        int[] count = new int[0];
+        for (int player : takes) {
+            if (player >= count.length) count = Arrays.copyOf(count, player + 1);
+            count[player]++;
+        }
+        changesBy = new int[count.length][];
+        for (int p = 0; p < count.length; p++) changesBy[p] = new int[count[p]];
+        Arrays.fill(count, 0);
+        for (int i = 0; i < takes.length; i++) changesBy[takes[i]][count[takes[i]]++] = takeChanges[i];
+    }
+
+    @Override
+    public synchronized void keyPress(int player, int slot) {
+        if (size == millis.length) {
+            millis = Arrays.copyOf(millis, size * 2);
+            presses = Arrays.copyOf(presses, size * 2);
+            taken = Arrays.copyOf(taken, size * 2);
+        }
+        millis[size] = clock.millis() - startMillis;
+        taken[size] = player < takenCount.length ? takenCount[player] : 0;
+        presses[size++] = player << 16 | slot;
+    }
+
+    @Override
+    public synchronized void keyTaken(int player, int tableChanges) {
+        if (takeCount == takes.length) {
+            takes = Arrays.copyOf(takes, takeCount * 2);
+            takeChanges = Arrays.copyOf(takeChanges, takeCount * 2);
+        }
+        takes[takeCount] = player;
+        takeChanges[takeCount++] = tableChanges;
+        if (player >= takenCount.length) takenCount = Arrays.copyOf(takenCount, player + 1);
+        takenCount[player]++;
+    }
+
+    @Override
+    public synchronized void claimTaken(int player, int tableChanges) {
+        if (claimCount == claimChanges.length) claimChanges = Arrays.copyOf(claimChanges, claimCount * 2);
+        claimChanges[claimCount++] = tableChanges;
+    }
+
+    @Override
+    public synchronized void verdict(int player, int verdict) {
+        if (verdictCount == verdicts.length) verdicts = Arrays.copyOf(verdicts, verdictCount * 2);
+        verdicts[verdictCount++] = player << 8 | (verdict & 0xff);
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return - the game clock time of a press, in milliseconds since the trace started.
+     */
+    public synchronized long millis(int press) {
+        return millis[press];
+    }
+
+    public synchronized int player(int press) {
+        return presses[press] >>> 16;
+    }
+
+    public synchronized int slot(int press) {
+        return presses[press] & 0xffff;
+    }
+
+    /**
+     * @return - the number of presses the player thread had taken from its queue when the press came.
+     */
+    public synchronized int taken(int press) {
+        return taken[press];
+    }
+
+    /**
+     * @return - the number of changes made to the cards on the table when the player thread took its take-th press
+     *           (counting from 0; 0 if it did not take that many).
+     */
+    public int tableChanges(int player, int take) {
+        if (changesBy == null || player >= changesBy.length || take >= changesBy[player].length) return 0;
+        return changesBy[player][take];
+    }
+
+    /**
+     * @return - the number of presses the player thread took while the dealer had made the given number of changes to
+     *           the cards on the table or fewer, i.e. the presses it must consume before the next change in a replay.
+     */
+    public int takesBefore(int player, int tableChanges) {
+        if (changesBy == null || player >= changesBy.length) return 0;
+        int[] changes = changesBy[player];
+        int low = 0, high = changes.length; // the first take after the next change
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (changes[mid] <= tableChanges) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return - the game clock time the trace ended at (when it was written), in milliseconds since it started.
+     */
+    public synchronized long endMillis() {
+        return clock == null ? endMillis : clock.millis() - startMillis;
+    }
+
+    public synchronized int verdicts() {
+        return verdictCount;
+    }
+
+    public synchronized int verdictPlayer(int index) {
+        return verdicts[index] >>> 8;
+    }
+
+    /**
+     * @return - the verdict (see GameListener) of the index-th claim checked.
+     */
+    public synchronized int verdict(int index) {
+        return (byte) verdicts[index];
+    }
+
+    /**
+     * @return - the number of changes made to the cards on the table when the dealer took the index-th claim checked.
+     */
+    public synchronized int verdictTableChanges(int index) {
+        return claimChanges[index];
+    }
+
+    public synchronized void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(millis[i]);
+                out.writeShort(presses[i] >>> 16);
+                out.writeShort(presses[i] & 0xffff);
+                out.writeInt(taken[i]);
+            }
+            out.writeInt(takeCount);
+            for (int i = 0; i < takeCount; i++) {
+                out.writeShort(takes[i]);
+                out.writeInt(takeChanges[i]);
+            }
+            out.writeInt(verdictCount);
+            for (int i = 0; i < verdictCount; i++) {
+                out.writeShort(verdicts[i] >>> 8);
+                out.writeByte(verdicts[i]);
+                out.writeInt(i < claimCount ? claimChanges[i] : 0); // the event loop game does not report them
+            }
+            out.writeLong(endMillis());
+        }
+    }
+
+    public static InputTrace read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException(path + " is not an input trace");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException(path + " is an input trace of version " + version + ", not " + VERSION);
+            long seed = in.readLong();
+            int size = in.readInt();
+            long[] millis = new long[size];
+            int[] presses = new int[size];
+            int[] taken = new int[size];
+            for (int i = 0; i < size; i++) {
+                millis[i] = in.readLong();
+                presses[i] = in.readUnsignedShort() << 16 | in.readUnsignedShort();
+                taken[i] = in.readInt();
+            }
+            int[] takes = new int[in.readInt()];
+            int[] takeChanges = new int[takes.length];
+            for (int i = 0; i < takes.length; i++) {
+                takes[i] = in.readUnsignedShort();
+                takeChanges[i] = in.readInt();
+            }
+            int[] verdicts = new int[in.readInt()];
+            int[] claimChanges = new int[verdicts.length];
+            for (int i = 0; i < verdicts.length; i++) {
+                verdicts[i] = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                claimChanges[i] = in.readInt();
+            }
+            return new InputTrace(seed, millis, presses, taken, takes, takeChanges, verdicts, claimChanges,
+                    in.readLong());
+        }
+    }
+}
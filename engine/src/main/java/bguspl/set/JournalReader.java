@@ -0,0 +1,126 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a game journal written by GameJournal. The file is memory-mapped and scanned in place (no per record
+ * allocation), so millions of records are scanned in milliseconds.
+ * <p>
+ * Usage: java bguspl.set.JournalReader journal-file [--dump]
+ */
+public class JournalReader {
+
+    /**
+     * Receives the journal records in the order they were written.
+     */
+    public interface Visitor {
+        void visit(long millis, short type, int player, int a, int b, long value);
+    }
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentRecords;
+    private final long capacity;
+    private final long written;
+    private final long startMillis;
+
+    public JournalReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameJournal.HEADER_BYTES);
+            if (header.getInt() != GameJournal.MAGIC || header.getInt() != GameJournal.VERSION
+                    || header.getInt() != GameJournal.RECORD_BYTES)
+                throw new IOException(path + " is not a game journal");
+            segmentRecords = header.getInt();
+            capacity = header.getLong();
+            startMillis = header.getLong();
+            long count = header.getLong();
+            if (count == 0) count = countWritten(channel, capacity); // the journal was not closed properly
+            written = count;
+
+            segments = new MappedByteBuffer[(int) ((capacity + segmentRecords - 1) / segmentRecords)];
+            for (int i = 0; i < segments.length; i++) {
+                long records = Math.min(segmentRecords, capacity - (long) i * segmentRecords);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        GameJournal.HEADER_BYTES + (long) i * segmentRecords * GameJournal.RECORD_BYTES,
+                        records * GameJournal.RECORD_BYTES);
+            }
+        }
+    }
+
+    private static long countWritten(FileChannel channel, long capacity) throws IOException {
+        // without the header count, the records with a type set are the ones written (assuming no wrap around)
+        MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, GameJournal.HEADER_BYTES,
+                Math.min(channel.size() - GameJournal.HEADER_BYTES, Integer.MAX_VALUE));
+        long count = 0;
+        while (count < capacity && (count + 1) * GameJournal.RECORD_BYTES <= records.limit()
+                && records.getShort((int) count * GameJournal.RECORD_BYTES + 12) != 0)
+            count++;
+        return count;
+    }
+
+    /**
+     * @return - the number of records available (the ring keeps the last capacity records).
+     */
+    public long size() {
+        return Math.min(written, capacity);
+    }
+
+    /**
+     * @return - the wall clock time the journal was started at (epoch millis).
+     */
+    public long startMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Visits all the available records, oldest first.
+     */
+    public void scan(Visitor visitor) {
+        for (long sequence = written - size(); sequence < written; sequence++) {
+            long index = sequence % capacity;
+            MappedByteBuffer segment = segments[(int) (index / segmentRecords)];
+            int offset = (int) (index % segmentRecords) * GameJournal.RECORD_BYTES;
+            visitor.visit(segment.getLong(offset), segment.getShort(offset + 12), segment.getShort(offset + 14),
+                    segment.getInt(offset + 16), segment.getInt(offset + 20), segment.getLong(offset + 24));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: JournalReader journal-file [--dump]");
+            return;
+        }
+        boolean dump = args.length > 1 && args[1].equals("--dump");
+        long start = System.nanoTime();
+        JournalReader reader = new JournalReader(Paths.get(args[0]));
+        long[] counts = new long[GameJournal.TYPE_NAMES.length];
+        long[] last = new long[1];
+        int[] claimSlots = new int[1]; // the slots of the last claim not printed yet
+        reader.scan((millis, type, player, a, b, value) -> {
+            if (type > 0 && type < counts.length) counts[type]++;
+            last[0] = millis;
+            if (!dump) return;
+            if (type == GameJournal.CLAIM || type == GameJournal.CLAIM_SLOTS) {
+                if (type == GameJournal.CLAIM) claimSlots[0] = a;
+                int count = Math.min(GameJournal.SLOTS_PER_RECORD, claimSlots[0]);
+                claimSlots[0] -= count;
+                StringBuilder slots = new StringBuilder();
+                for (int i = 0; i < count; i++) slots.append(i == 0 ? "" : ",").append(GameJournal.claimSlot(b, value, i));
+                System.out.printf("%9d ms %-15s player=%d a=%d slots=%s%n", millis,
+                        GameJournal.TYPE_NAMES[type], player, a, slots);
+            } else {
+                System.out.printf("%9d ms %-15s player=%d a=%d b=%d value=%d%n", millis,
+                        type > 0 && type < counts.length ? GameJournal.TYPE_NAMES[type] : "?" + type, player, a, b, value);
+            }
+        });
+        long scanMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        System.out.println(reader.size() + " records over " + last[0] + " ms of game time (scanned in " + scanMillis + " ms):");
+        for (int type = 1; type < counts.length; type++)
+            if (counts[type] > 0) System.out.printf("  %-15s %d%n", GameJournal.TYPE_NAMES[type], counts[type]);
+    }
+}
@@ -0,0 +1,36 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+/**
+ * Where the key presses of the players go: the players of the threaded engine, or the event loop engine (see
+ * EventLoopGame). Used by the keyboard input, the trace replay and the remote players.
+ */
+@FunctionalInterface
+public interface KeyInput {
+
+    /**
+     * A key was pressed.
+     *
+     * @param player       - the id of the player.
+     * @param slot         - the slot corresponding to the key pressed.
+     * @param pressedNanos - the System.nanoTime the key press was received at.
+     * @return - true iff the key press was accepted (the same semantics as Player.keyPressed).
+     */
+    boolean keyPressed(int player, int slot, long pressedNanos);
+
+    /**
+     * A key was pressed (now).
+     */
+    default boolean keyPressed(int player, int slot) {
+        return keyPressed(player, slot, System.nanoTime());
+    }
+
+    /**
+     * @param players - the players array (filled by the time the game starts).
+     * @return - the input of the threaded engine.
+     */
+    static KeyInput of(Player[] players) {
+        return (player, slot, pressedNanos) -> players[player].keyPressed(slot, pressedNanos);
+    }
+}
@@ -0,0 +1,288 @@
+package bguspl.set;
+
+import bguspl.set.ex.Checkpoint;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import bguspl.set.events.GameEventPublisher;
+import bguspl.set.events.UserInterfaceSubscriber;
+import bguspl.set.loop.EventLoopGame;
+import bguspl.set.metrics.Metrics;
+import bguspl.set.net.GameServer;
+import bguspl.set.shm.SharedStateWriter;
+import bguspl.set.spectator.SpectatorChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import java.util.logging.*;
+
+/**
+ * This class contains the game's main function.
+ */
+public class Main {
+
+    private static Dealer dealer;
+    private static EventLoopGame loopGame;
+    private static Thread mainThread;
+
+    private static boolean xButtonPressed = false;
+    private static Logger logger;
+
+    public static void xButtonPressed() throws InterruptedException {
+        if (logger != null) logger.severe("exit button pressed");
+        xButtonPressed = true;
+        endGame();
+        mainThread.join();
+    }
+
+    private static void endGame() {
+        if (dealer != null) dealer.terminate();
+        if (loopGame != null) loopGame.terminate();
+    }
+
+    /**
+     * Creates the graphical user interface with the first UserInterfaceFactory service on the class path.
+     *
+     * @throws UnsupportedOperationException - if there is none.
+     */
+    private static UserInterface createGraphicalUserInterface(Config config, Util util, KeyInput input) {
+        Iterator<UserInterfaceFactory> factories = ServiceLoader.load(UserInterfaceFactory.class).iterator();
+        if (!factories.hasNext()) throw new UnsupportedOperationException("no user interface module on the class path");
+        return factories.next().create(logger, config, util, input);
+    }
+
+    /**
+     * The game's main function. Creates all data structures and initializes the threads.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+
+        mainThread = Thread.currentThread();
+
+        // create the game environment objects
+        logger = initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        Config config = new Config(logger, "config.properties");
+        AsyncLogHandler.install(logger, config);
+        Util util = new UtilImpl(config);
+
+        Player[] players = new Player[config.players];
+        KeyInput input = config.eventLoop ? (player, slot, pressedNanos) -> loopGame.keyPressed(player, slot, pressedNanos)
+                : KeyInput.of(players);
+        UserInterface ui = null;
+        if (config.headless) {
+            if (config.humanPlayers > 0)
+                logger.severe("warning: running with human players in headless mode");
+            ui = new UserInterfaceHeadless(logger, config);
+        } else {
+            try {
+                ui = createGraphicalUserInterface(config, util, input);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+            }
+        }
+        // the seed and the input trace (recorded or replayed)
+        InputTrace replay = null;
+        if (!config.replayTrace.isEmpty()) {
+            try {
+                replay = InputTrace.read(Paths.get(config.replayTrace));
+            } catch (IOException e) {
+                logger.severe("cannot read input trace " + config.replayTrace + ": " + e.getMessage());
+            }
+        }
+        long seed = replay != null ? replay.seed() : config.randomSeed;
+        logger.severe("random seed: " + seed);
+        // a fast replay runs in simulated time, so the presses still come at their recorded game clock times
+        Clock clock = config.simulatedTime || replay != null && !config.replayRealTime
+                ? new SimulatedClock() : Clock.SYSTEM;
+
+        GameJournal journal = null;
+        if (!config.journalFile.isEmpty()) {
+            try {
+                journal = new GameJournal(Paths.get(config.journalFile), config.journalCapacity, clock, ui);
+                ui = journal;
+            } catch (IOException e) {
+                logger.severe("cannot create game journal " + config.journalFile + ": " + e.getMessage());
+            }
+        }
+        if (!config.headless) ui = new UserInterfaceDecorator(logger, util, ui);
+
+        // with the game event stream, the user interface (and the network broadcast and spectator channel below) are
+        // subscribers with their own queues instead of decorators called by the game threads
+        GameEventPublisher events = null;
+        if (config.eventStream) {
+            events = new GameEventPublisher(config, logger);
+            if (ui != null)
+                events.subscribe(new UserInterfaceSubscriber("user interface", ui, logger), config.eventQueueCapacity,
+                        config.uiEventBackpressure);
+            ui = events;
+        }
+
+        InputTrace recording = config.recordTrace.isEmpty() ? null : new InputTrace(seed, clock);
+        TraceReplayer replayer = replay == null ? null : new TraceReplayer(replay, input, config.players, clock,
+                Main::endGame, logger);
+
+        GameServer server = null;
+        if (config.netPort > 0) {
+            try {
+                server = new GameServer(config, input, logger);
+                server.start(config.netPort);
+                if (events == null) ui = server.broadcast(ui);
+                else events.subscribe(new UserInterfaceSubscriber("network broadcast", server.broadcast(null), logger),
+                        config.eventQueueCapacity, config.netEventBackpressure);
+            } catch (IOException e) {
+                logger.severe("cannot start the network server: " + e.getMessage());
+                if (server != null) server.close();
+                server = null;
+            }
+        }
+
+        SpectatorChannel spectators = null;
+        if (server != null && config.spectators) {
+            if (events == null) {
+                spectators = new SpectatorChannel(ui, config, logger);
+                ui = spectators;
+            } else {
+                spectators = new SpectatorChannel(null, config, logger);
+                events.subscribe(new UserInterfaceSubscriber("spectator channel", spectators, logger),
+                        config.eventQueueCapacity, config.spectatorEventBackpressure);
+            }
+            server.spectate(spectators);
+        }
+
+        SharedStateWriter sharedState = null;
+        if (!config.sharedStateFile.isEmpty()) {
+            try {
+                if (events == null) {
+                    sharedState = new SharedStateWriter(ui, Paths.get(config.sharedStateFile), config.tableSize, config.players, clock, logger);
+                    ui = sharedState;
+                } else {
+                    sharedState = new SharedStateWriter(null, Paths.get(config.sharedStateFile), config.tableSize, config.players, clock,
+                            logger);
+                    events.subscribe(new UserInterfaceSubscriber("shared state", sharedState, logger),
+                        config.eventQueueCapacity, config.sharedStateEventBackpressure);
+                }
+            } catch (IOException e) {
+                logger.severe("cannot export the game state to " + config.sharedStateFile + ": " + e.getMessage());
+            }
+        }
+
+        Metrics metrics = new Metrics(config.players);
+        if (config.metricsJmx) metrics.registerMBean(logger);
+        if (config.traceClaims) metrics.enableTracing(config.traceSlowest);
+        if (!config.metricsFile.isEmpty())
+            metrics.startDump(Paths.get(config.metricsFile), config.metricsIntervalMillis, logger);
+        ui = metrics.instrument(ui);
+
+        Env env = new Env(logger, config, ui, util,
+                GameListener.all(journal, recording, replayer, metrics, server, events), new RandomSource(seed), clock,
+                metrics);
+
+        // create the game entities (when replaying, all players are driven by the trace instead of the AI)
+        Runnable game;
+        if (config.eventLoop) {
+            loopGame = new EventLoopGame(env, replay == null);
+            game = loopGame;
+            if (!config.checkpointFile.isEmpty() || !config.restoreCheckpoint.isEmpty())
+                logger.severe("warning: checkpoints are not supported by the event loop");
+        } else {
+            Table table = new Table(env);
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers || replay != null);
+            if (replay != null) dealer.replay(replay);
+            if (!config.restoreCheckpoint.isEmpty()) {
+                try {
+                    Checkpoint checkpoint = Checkpoint.read(Paths.get(config.restoreCheckpoint));
+                    dealer.resume(checkpoint);
+                    logger.severe("resuming the game of checkpoint " + config.restoreCheckpoint + ": "
+                            + checkpoint.tableCards() + " cards on the table, " + checkpoint.deckCards() + " in the deck");
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.severe("cannot restore checkpoint " + config.restoreCheckpoint + ": " + e.getMessage());
+                    logger.severe("starting a new game");
+                }
+            }
+            game = dealer;
+        }
+
+        // start the dealer thread (or the event loop thread)
+        ThreadLogger dealerThread = new ThreadLogger(game, "dealer", logger);
+        clock.starting();
+        dealerThread.startWithLog();
+        ThreadLogger replayThread = null;
+        if (replayer != null) {
+            replayThread = new ThreadLogger(replayer, "replay", logger);
+            clock.starting();
+            replayThread.setDaemon(true);
+            replayThread.startWithLog();
+        }
+
+        try {
+            // shutdown stuff
+            dealerThread.joinWithLog();
+            if (!xButtonPressed && config.endGamePauseMillies > 0) clock.sleep(config.endGamePauseMillies);
+        } catch (InterruptedException ignored) {
+        } finally {
+            logger.severe("thanks for playing... it was fun!");
+            System.out.println("Thanks for playing... it was fun!");
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (!xButtonPressed) env.ui.dispose();
+            if (events != null) events.close();
+            if (replayThread != null) {
+                replayThread.interrupt();
+                replayer.report();
+            }
+            if (recording != null) try {
+                recording.write(Paths.get(config.recordTrace));
+                logger.severe("recorded " + recording.size() + " key presses to " + config.recordTrace);
+            } catch (IOException e) {
+                logger.severe("cannot write input trace " + config.recordTrace + ": " + e.getMessage());
+            }
+            if (config.traceClaims && config.traceSlowest > 0) {
+                logger.severe("slowest claims (stage times in ms):");
+                metrics.slowestClaims().forEach(trace -> logger.severe(trace.toString()));
+            }
+            metrics.close();
+            if (server != null) server.close();
+            if (spectators != null) spectators.close();
+            if (sharedState != null) sharedState.close();
+            if (journal != null) try {
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("cannot close game journal: " + e.getMessage());
+            }
+            if (clock instanceof SimulatedClock) ((SimulatedClock) clock).close();
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    private static Logger initLogger() {
+
+        //just to make our log file nicer :)
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        FileHandler handler;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            new File("./logs/").mkdirs();
+            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        Config.setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+
+        return logger;
+    }
+}
@@ -0,0 +1,60 @@
+package bguspl.set;
+
+import java.util.SplittableRandom;
+
+/**
+ * The source of all the randomness in the game. Every consumer (the dealer, each computer player) draws from its own
+ * generator, so random draws never contend: the generators are SplittableRandom instances, which have no shared or
+ * atomic state (unlike Math.random() and java.util.Random, whose seed is updated with a CAS on every draw).
+ * <p>
+ * The named streams are derived from a single seed, so a game can be reproduced from the seed alone, regardless of how
+ * the consumers' draws interleave.
+ */
+public class RandomSource {
+
+    private final long seed;
+
+    /**
+     * Creates an unseeded source (every run is different).
+     */
+    public RandomSource() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param seed - the game seed.
+     */
+    public RandomSource(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return - the game seed.
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Creates the random stream of a consumer. The same seed and name always produce the same sequence. The name is
+     * mixed in one char at a time (not through String.hashCode, which collides on names like "Aa" and "BB"), and mix
+     * is a bijection, so two names of the same length never get the same stream.
+     *
+     * @param name - the consumer name (e.g. "dealer", "computer-3").
+     * @return - a new random number generator, to be used by a single thread.
+     */
+    public SplittableRandom stream(String name) {
+        long z = mix(seed);
+        for (int i = 0; i < name.length(); i++) z = mix(z ^ name.charAt(i));
+        return new SplittableRandom(mix(z ^ name.length()));
+    }
+
+    /**
+     * A 64 bit finalizer (from SplitMix64) so that similar seeds and names produce unrelated streams.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,210 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A discrete-event clock: the time does not pass by itself, it jumps to the next deadline as soon as all the
+ * registered game threads are waiting on the clock (sleeping, or waiting on a monitor through await). Timeouts,
+ * freezes and table delays therefore take no real time, while the threads still wake up in deadline order, so the
+ * order of the game events is the same as in real time.
+ * <p>
+ * The clock counts the registered threads that are runnable: a thread stops counting when it sleeps or awaits, and
+ * counts again as soon as it is woken (by its deadline, by signal, or by an interrupt or a spurious wakeup), before it
+ * even runs. A thread announced by starting counts from then on, before it registers. The time only jumps when the
+ * count is zero, so a woken or a starting thread always runs before the next jump. The jumps are made by a helper
+ * thread, which also wakes the waiters whose deadline is reached, until the clock is closed (once the game is over).
+ */
+public class SimulatedClock implements Clock, AutoCloseable {
+
+    private static class Waiter {
+        final Thread thread;
+        final long deadline;
+        final Object monitor;
+        final boolean registered;
+        boolean woken;
+
+        Waiter(Thread thread, long deadline, Object monitor, boolean registered) {
+            this.thread = thread;
+            this.deadline = deadline;
+            this.monitor = monitor;
+            this.registered = registered;
+        }
+    }
+
+    private static final Object SETTLE = new Object(); // the monitor of the settle waiters (who wait on the clock)
+
+    private final Set<Thread> participants = new HashSet<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private int runnable; // the registered threads that are not waiting on the clock, and the starting ones
+    private int starting; // the threads announced by starting that have not registered yet
+    private volatile long now;
+    private long jumps;
+    private boolean closed;
+
+    public SimulatedClock() {
+        Thread jumper = new Thread(this::jumpLoop, "simulated-clock");
+        jumper.setDaemon(true);
+        jumper.start();
+    }
+
+    /**
+     * Stops the helper thread: the time no longer jumps (called when the game threads are done).
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    @Override
+    public synchronized void starting() {
+        starting++;
+        runnable++;
+    }
+
+    @Override
+    public synchronized void register() {
+        if (!participants.add(Thread.currentThread())) return;
+        if (starting > 0) starting--; // already counted since it was announced
+        else runnable++;
+    }
+
+    @Override
+    public synchronized void unregister() {
+        if (participants.remove(Thread.currentThread())) runnable--;
+        notifyAll(); // the others may be all waiting now
+    }
+
+    @Override
+    public synchronized void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) return;
+        Waiter waiter = block(now + millis, this);
+        try {
+            while (!waiter.woken) wait();
+        } finally {
+            unblock(waiter);
+        }
+    }
+
+    @Override
+    public void await(Object monitor, long millis) throws InterruptedException {
+        Waiter waiter;
+        synchronized (this) {
+            waiter = block(millis <= 0 ? Long.MAX_VALUE : now + millis, monitor);
+        }
+        try {
+            monitor.wait(); // the caller holds the monitor, so it cannot be signalled before the wait
+        } finally {
+            synchronized (this) {
+                unblock(waiter);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void settle() {
+        Waiter waiter = block(now, SETTLE); // due at once: woken as soon as the others are waiting
+        try {
+            while (!waiter.woken) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unblock(waiter);
+        }
+    }
+
+    @Override
+    public void signal(Object monitor) {
+        synchronized (this) {
+            for (Waiter waiter : waiters)
+                if (waiter.monitor == monitor) wake(waiter);
+        }
+        monitor.notifyAll();
+    }
+
+    /**
+     * @return - the number of time jumps so far.
+     */
+    public synchronized long jumps() {
+        return jumps;
+    }
+
+    // the caller holds the lock
+
+    private Waiter block(long deadline, Object monitor) {
+        Thread thread = Thread.currentThread();
+        Waiter waiter = new Waiter(thread, deadline, monitor, participants.contains(thread));
+        waiters.add(waiter);
+        if (waiter.registered) runnable--;
+        notifyAll(); // wakes the helper
+        return waiter;
+    }
+
+    private void unblock(Waiter waiter) {
+        wake(waiter); // an interrupt or a spurious wakeup
+        waiters.remove(waiter);
+    }
+
+    private void wake(Waiter waiter) {
+        if (waiter.woken) return;
+        waiter.woken = true;
+        if (waiter.registered) runnable++;
+    }
+
+    /**
+     * @return - the earliest deadline of the waiters that were not woken yet (Long.MAX_VALUE if none).
+     */
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (Waiter waiter : waiters)
+            if (!waiter.woken) next = Math.min(next, waiter.deadline);
+        return next;
+    }
+
+    private void jumpLoop() {
+        Set<Object> due = Collections.newSetFromMap(new IdentityHashMap<>()); // the monitors to notify
+        while (true) {
+            try {
+                synchronized (this) {
+                    while (!closed && (runnable > 0 || nextDeadline() == Long.MAX_VALUE)) wait();
+                    if (closed) return;
+                    long next = nextDeadline();
+                    if (next > now) {
+                        now = next;
+                        jumps++;
+                    }
+                    Waiter settler = null;
+                    for (Waiter waiter : waiters) {
+                        if (waiter.woken || waiter.deadline > now) continue;
+                        if (waiter.monitor == SETTLE) {
+                            if (settler == null) settler = waiter;
+                            continue;
+                        }
+                        wake(waiter);
+                        if (waiter.monitor != this) due.add(waiter.monitor);
+                    }
+                    // the settlers are woken one at a time, in order, once the others are all waiting
+                    if (settler != null && runnable == 0) wake(settler);
+                    notifyAll(); // wakes the sleepers
+                }
+                for (Object monitor : due) {
+                    synchronized (monitor) {
+                        monitor.notifyAll();
+                    }
+                }
+                due.clear();
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package bguspl.set;
+
+import java.util.logging.Logger;
+
+/**
+ * Replays the key presses of an input trace into the players, each at its recorded game clock time (see InputTrace).
+ * The replay waits on the game clock, so with a simulated clock it runs as fast as possible and still presses at the
+ * recorded times. A press also waits until its player thread has taken as many presses as when it came in the
+ * recording, and the player threads and the dealer keep the other recorded orders (see Dealer.replay).
+ * <p>
+ * The players accept the replayed presses even while frozen or while the table is being dealt, as the presses were
+ * accepted in the recording. A press that finds the queue of its player full is retried once the other game threads
+ * are done with the current time (see Clock.settle), and then a millisecond later, which means the replay has diverged
+ * from the recording. The replay ends the game at the time the recorded game ended, if it did not end by itself. A
+ * replay in real time runs a little behind the recording, so the replay waits up to END_GRACE_MILLIS more for the
+ * recorded presses to be taken and for the recorded verdicts; a replay that diverged waits until then too, and ending
+ * the game releases the game threads waiting for the recorded orders.
+ * <p>
+ * The replayer also listens to the verdicts, and checks them against the recorded ones (see report).
+ */
+public class TraceReplayer implements Runnable, GameListener {
+
+    private static final long END_GRACE_MILLIS = 1000;
+
+    private final InputTrace trace;
+    private final KeyInput input;
+    private final Clock clock;
+    private final Runnable end;
+    private final Logger logger;
+    private int retries;
+
+    // the presses each player thread has taken so far, guarded by this
+    private final int[] taken;
+
+    // the verdicts replayed so far, guarded by this
+    private int verdicts;
+    private int diverged = -1; // the index of the first verdict that differs from the recording
+
+    /**
+     * @param end - ends the game (called by the replay thread if the game is still running when the recorded one
+     *            ended).
+     */
+    public TraceReplayer(InputTrace trace, KeyInput input, int players, Clock clock, Runnable end, Logger logger) {
+        this.trace = trace;
+        this.input = input;
+        this.taken = new int[players];
+        this.clock = clock;
+        this.end = end;
+        this.logger = logger;
+    }
+
+    @Override
+    public void run() {
+        clock.register();
+        long start = clock.millis();
+        long endMillis = start + trace.endMillis();
+        boolean ended = false;
+        try {
+            int i = 0;
+            for (; i < trace.size(); i++) {
+                long delay = start + trace.millis(i) - clock.millis();
+                if (delay > 0) clock.sleep(delay);
+                if (!awaitTaken(trace.player(i), trace.taken(i), endMillis + END_GRACE_MILLIS)) break;
+                boolean settled = false;
+                while (!input.keyPressed(trace.player(i), trace.slot(i))) {
+                    if (!settled) {
+                        clock.settle();
+                        settled = true;
+                        continue;
+                    }
+                    settled = false;
+                    retries++;
+                    clock.sleep(1);
+                }
+            }
+            logger.info("replayed " + i + " of " + trace.size() + " key presses in " + (clock.millis() - start)
+                    + " ms of game time (" + retries + " retries).");
+            long delay = endMillis - clock.millis();
+            if (delay > 0) clock.sleep(delay);
+            awaitVerdicts(endMillis + END_GRACE_MILLIS);
+            ended = true;
+        } catch (InterruptedException ignored) {
+        } finally {
+            clock.unregister();
+        }
+        if (ended) { // the game would go on without input
+            logger.severe("the recorded game ended at " + trace.endMillis() + " ms of game time, ending the replay");
+            end.run();
+        }
+    }
+
+    /**
+     * Waits until the player thread has taken as many presses as when the press came in the recording.
+     *
+     * @return - false iff the game clock reached the given time first (the replay diverged).
+     */
+    private synchronized boolean awaitTaken(int player, int count, long until) throws InterruptedException {
+        while (player < taken.length && taken[player] < count) {
+            if (clock.millis() >= until) return false;
+            clock.await(this, until - clock.millis());
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the game reached the recorded verdicts, or diverged from them, or the game clock reached the given
+     * time.
+     */
+    private synchronized void awaitVerdicts(long until) throws InterruptedException {
+        while (verdicts < trace.verdicts() && diverged < 0 && clock.millis() < until)
+            clock.await(this, until - clock.millis());
+    }
+
+    @Override
+    public synchronized void keyTaken(int player, int tableChanges) {
+        if (player >= taken.length) return;
+        taken[player]++;
+        clock.signal(this);
+    }
+
+    @Override
+    public synchronized void verdict(int player, int verdict) {
+        if (diverged < 0 && (verdicts >= trace.verdicts() || trace.verdictPlayer(verdicts) != player
+                || trace.verdict(verdicts) != verdict))
+            diverged = verdicts;
+        verdicts++;
+        clock.signal(this);
+    }
+
+    /**
+     * Logs whether the replay reached the same verdicts as the recording (called when the game is over).
+     *
+     * @return - true iff it did.
+     */
+    public synchronized boolean report() {
+        if (diverged < 0 && verdicts == trace.verdicts()) {
+            logger.severe("the replay reached the same " + verdicts + " verdicts as the recording");
+            return true;
+        }
+        if (diverged < 0) diverged = verdicts;
+        logger.severe("the replay diverged from the recording at verdict " + diverged + " of " + trace.verdicts()
+                + " (" + verdicts + " verdicts replayed, " + retries + " key presses retried)");
+        return false;
+    }
+}
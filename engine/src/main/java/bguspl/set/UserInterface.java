@@ -18,6 +18,28 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images corresponding to the card ids in the specified slots, as a single update.
+     * @param cards - the card ids (cards[i] is placed in slots[i]; a negative id means an empty slot, drawn as by
+     *              removeCard).
+     * @param slots - the slot numbers.
+     */
+    void placeCards(int[] cards, int[] slots);
+
+    /**
+     * Draw empty card images in all slots and remove all players names text, as a single update.
+     */
+    void clearTable();
+
+    /**
+     * Remove the cards and the players names text from the specified slots and draw the new cards instead, as a
+     * single update.
+     * @param slots - the slot numbers.
+     * @param cards - the new card ids (cards[i] is placed in slots[i]; a negative id means an empty slot, drawn as by
+     *              removeCard).
+     */
+    void replaceSlots(int[] slots, int[] cards);
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
@@ -0,0 +1,144 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+public class UserInterfaceDecorator implements UserInterface {
+
+    /**
+     * The level of the user interface events in the log. Messages are only built if this level is loggable, and the
+     * parameters are formatted by the log handler (i.e. by the background writer when logging asynchronously).
+     */
+    private static final Level LEVEL = Level.FINE;
+
+    private final Logger logger;
+    private final Util util;
+    private final UserInterface ui;
+
+    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
+        this.ui = ui;
+        this.logger = logger;
+        this.util = util;
+
+        if (ui == null) System.out.println("running without a user interface. Check logs.");
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "placing card {0,number,#} in slot {1,number,#}", new Object[]{card, slot});
+        util.spin();
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "removing card from slot {0,number,#}", slot);
+        util.spin();
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "placing cards {0} in slots {1}", new Object[]{Arrays.toString(cards), Arrays.toString(slots)});
+        util.spin();
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "removing all cards and tokens from the table");
+        util.spin();
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "replacing cards in slots {0} with cards {1}", new Object[]{Arrays.toString(slots), Arrays.toString(cards)});
+        util.spin();
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "player {0,number,#} placing token on slot {1,number,#}", new Object[]{player + 1, slot});
+        util.spin();
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "removing all tokens");
+        util.spin();
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "removing tokens from slot {0,number,#}", slot);
+        util.spin();
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "removing player {0,number,#} token from slot {1,number,#}", new Object[]{player + 1, slot});
+        util.spin();
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if ((!warn || millies % 1000L == 0L) && logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "updating countdown to {0,number,#}", millies);
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "updating elapsed time to {0,number,#}", millies);
+        util.spin();
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "setting player {0,number,#} freeze to {1,number,#}", new Object[]{player + 1, millies});
+        util.spin();
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        if (logger.isLoggable(LEVEL))
+            logger.log(LEVEL, "setting player {0,number,#} score to {1,number,#}", new Object[]{player + 1, score});
+        util.spin();
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
+        logger.severe("announcing winner(s): " + String.join(", ", winners));
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        logger.severe("disposing of user interface elements");
+        if (ui != null) ui.dispose();
+    }
+}
@@ -0,0 +1,17 @@
+package bguspl.set;
+
+import java.util.logging.Logger;
+
+/**
+ * Creates a graphical user interface. The engine has no user interface of its own: Main looks up an implementation
+ * with java.util.ServiceLoader (e.g. the one of the Swing module), so the engine can run without one on the class path.
+ */
+public interface UserInterfaceFactory {
+
+    /**
+     * @param input - where the key presses of the players go.
+     * @return - the user interface.
+     * @throws UnsupportedOperationException - if the user interface cannot be created (e.g. no display).
+     */
+    UserInterface create(Logger logger, Config config, Util util, KeyInput input);
+}
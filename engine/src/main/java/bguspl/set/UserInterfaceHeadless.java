@@ -0,0 +1,115 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A user interface for headless (server and batch) runs: draws nothing and never loads the AWT classes. It only
+ * counts the user interface updates and keeps the scores, to print a summary to the console at the end of the game.
+ */
+public class UserInterfaceHeadless implements UserInterface {
+
+    private final Logger logger;
+    private final Config config;
+    private final AtomicIntegerArray scores;
+    private final LongAdder updates = new LongAdder();
+    private final long startMillis = System.currentTimeMillis();
+
+    public UserInterfaceHeadless(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        this.scores = new AtomicIntegerArray(config.players);
+    }
+
+    /**
+     * @return - the number of user interface updates so far.
+     */
+    public long updates() {
+        return updates.sum();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        updates.increment();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        updates.increment();
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        updates.increment();
+    }
+
+    @Override
+    public void clearTable() {
+        updates.increment();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        updates.increment();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        updates.increment();
+    }
+
+    @Override
+    public void removeTokens() {
+        updates.increment();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        updates.increment();
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        updates.increment();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        updates.increment();
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        updates.increment();
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        updates.increment();
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        updates.increment();
+        scores.set(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        updates.increment();
+        StringBuilder summary = new StringBuilder("game over after ")
+                .append((System.currentTimeMillis() - startMillis) / 1000).append(" seconds, winner(s):");
+        for (int player : players) summary.append(' ').append(config.playerNames[player]);
+        summary.append(System.lineSeparator());
+        for (int player = 0; player < config.players; player++)
+            summary.append(String.format("  %-20s %d%n", config.playerNames[player], scores.get(player)));
+        System.out.print(summary);
+        logger.severe(summary.toString().trim());
+    }
+
+    @Override
+    public void dispose() {
+        logger.severe("headless run done, " + updates() + " user interface updates");
+    }
+}
@@ -0,0 +1,20 @@
+package bguspl.set.events;
+
+/**
+ * What a GameEventPublisher does with an event for a subscriber whose queue is full. The game threads never wait for
+ * a subscriber, so a subscriber that cannot keep up loses events. The subscribers that keep the state of the game
+ * (user interfaces) should use RESYNC: after losing a single event, they would be wrong until the game ends.
+ */
+public enum Backpressure {
+    /** The event is dropped (the subscriber keeps the older events). */
+    DROP_NEWEST,
+    /** The oldest event in the queue is dropped to make room (the subscriber keeps the latest events). */
+    DROP_OLDEST,
+    /**
+     * The queued events are dropped, and replaced by a RESYNC event with the current state (the subscriber keeps a
+     * correct state, but misses the intermediate changes).
+     */
+    RESYNC,
+    /** The subscription is cancelled, and the subscriber gets onError. */
+    CANCEL
+}
@@ -0,0 +1,283 @@
+package bguspl.set.events;
+
+import bguspl.set.UserInterface;
+
+import java.util.Arrays;
+
+/**
+ * An immutable game event: a user interface call or a game listener event, with the time it was published. The fields
+ * that do not apply to the event's type are -1 (or null for the arrays).
+ * <p>
+ * A RESYNC event carries the whole user interface state (see State): it replaces the events a subscriber missed.
+ */
+public final class GameEvent {
+
+    /**
+     * The user interface state at some point of the game: the cards, the tokens, the scores, the freezes and the
+     * countdown.
+     */
+    public static final class State {
+        private final int[] cards; // per slot, -1 for none
+        private final boolean[][] tokens; // [slot][player]
+        private final int[] scores;
+        private final long[] freezes;
+        private final long countdown;
+        private final boolean warn;
+
+        State(int[] cards, boolean[][] tokens, int[] scores, long[] freezes, long countdown, boolean warn) {
+            this.cards = cards.clone();
+            this.tokens = new boolean[tokens.length][];
+            for (int slot = 0; slot < tokens.length; slot++) this.tokens[slot] = tokens[slot].clone();
+            this.scores = scores.clone();
+            this.freezes = freezes.clone();
+            this.countdown = countdown;
+            this.warn = warn;
+        }
+
+        /**
+         * @return - the card in a slot (-1 for none).
+         */
+        public int card(int slot) {
+            return cards[slot];
+        }
+
+        public boolean hasToken(int player, int slot) {
+            return tokens[slot][player];
+        }
+
+        public int score(int player) {
+            return scores[player];
+        }
+
+        /**
+         * Brings a user interface to this state (it may have missed any number of calls).
+         */
+        public void applyTo(UserInterface ui) {
+            ui.clearTable();
+            int count = 0;
+            for (int card : cards)
+                if (card >= 0) count++;
+            int[] placedCards = new int[count];
+            int[] placedSlots = new int[count];
+            for (int slot = 0, i = 0; slot < cards.length; slot++) {
+                if (cards[slot] < 0) continue;
+                placedCards[i] = cards[slot];
+                placedSlots[i++] = slot;
+            }
+            if (count > 0) ui.placeCards(placedCards, placedSlots);
+            for (int slot = 0; slot < tokens.length; slot++)
+                for (int player = 0; player < tokens[slot].length; player++)
+                    if (tokens[slot][player]) ui.placeToken(player, slot);
+            for (int player = 0; player < scores.length; player++) {
+                ui.setScore(player, scores[player]);
+                ui.setFreeze(player, freezes[player]);
+            }
+            ui.setCountdown(countdown, warn);
+        }
+    }
+
+    /**
+     * The event types: the UserInterface methods, then the GameListener methods.
+     */
+    public enum Type {
+        PLACE_CARD, REMOVE_CARD, PLACE_CARDS, CLEAR_TABLE, REPLACE_SLOTS,
+        PLACE_TOKEN, REMOVE_ALL_TOKENS, REMOVE_TOKENS, REMOVE_TOKEN,
+        COUNTDOWN, ELAPSED, FREEZE, SCORE, WINNERS, RESYNC, DISPOSE,
+        KEY_PRESS, CLAIM, VERDICT, RESHUFFLE;
+
+        /**
+         * @return - true iff the type is a user interface call.
+         */
+        public boolean isUserInterface() {
+            return ordinal() <= DISPOSE.ordinal();
+        }
+    }
+
+    public final Type type;
+    public final int player;
+    public final int slot;
+    public final int card;
+    /** The score (SCORE) or the verdict (VERDICT). */
+    public final int value;
+    /** The countdown, elapsed or freeze time in milliseconds. */
+    public final long millis;
+    public final boolean warn;
+    private final int[] cards;
+    private final int[] slots; // the slots of PLACE_CARDS, REPLACE_SLOTS and CLAIM, or the players of WINNERS
+    private final State state; // the state of RESYNC
+    /** The System.nanoTime the event was published at. */
+    public final long nanos;
+
+    private GameEvent(Type type, int player, int slot, int card, int value, long millis, boolean warn, int[] cards, int[] slots) {
+        this(type, player, slot, card, value, millis, warn, cards, slots, null);
+    }
+
+    private GameEvent(Type type, int player, int slot, int card, int value, long millis, boolean warn, int[] cards,
+                      int[] slots, State state) {
+        this.type = type;
+        this.player = player;
+        this.slot = slot;
+        this.card = card;
+        this.value = value;
+        this.millis = millis;
+        this.warn = warn;
+        this.cards = cards;
+        this.slots = slots;
+        this.state = state;
+        this.nanos = System.nanoTime();
+    }
+
+    private static GameEvent of(Type type, int player, int slot, int card) {
+        return new GameEvent(type, player, slot, card, -1, -1, false, null, null);
+    }
+
+    private static int[] copy(int[] array) {
+        return array == null ? null : array.clone();
+    }
+
+    public static GameEvent placeCard(int card, int slot) {
+        return of(Type.PLACE_CARD, -1, slot, card);
+    }
+
+    public static GameEvent removeCard(int slot) {
+        return of(Type.REMOVE_CARD, -1, slot, -1);
+    }
+
+    public static GameEvent placeCards(int[] cards, int[] slots) {
+        return new GameEvent(Type.PLACE_CARDS, -1, -1, -1, -1, -1, false, copy(cards), copy(slots));
+    }
+
+    public static GameEvent clearTable() {
+        return of(Type.CLEAR_TABLE, -1, -1, -1);
+    }
+
+    public static GameEvent replaceSlots(int[] slots, int[] cards) {
+        return new GameEvent(Type.REPLACE_SLOTS, -1, -1, -1, -1, -1, false, copy(cards), copy(slots));
+    }
+
+    public static GameEvent placeToken(int player, int slot) {
+        return of(Type.PLACE_TOKEN, player, slot, -1);
+    }
+
+    public static GameEvent removeTokens() {
+        return of(Type.REMOVE_ALL_TOKENS, -1, -1, -1);
+    }
+
+    public static GameEvent removeTokens(int slot) {
+        return of(Type.REMOVE_TOKENS, -1, slot, -1);
+    }
+
+    public static GameEvent removeToken(int player, int slot) {
+        return of(Type.REMOVE_TOKEN, player, slot, -1);
+    }
+
+    public static GameEvent countdown(long millis, boolean warn) {
+        return new GameEvent(Type.COUNTDOWN, -1, -1, -1, -1, millis, warn, null, null);
+    }
+
+    public static GameEvent elapsed(long millis) {
+        return new GameEvent(Type.ELAPSED, -1, -1, -1, -1, millis, false, null, null);
+    }
+
+    public static GameEvent freeze(int player, long millis) {
+        return new GameEvent(Type.FREEZE, player, -1, -1, -1, millis, false, null, null);
+    }
+
+    public static GameEvent score(int player, int score) {
+        return new GameEvent(Type.SCORE, player, -1, -1, score, -1, false, null, null);
+    }
+
+    public static GameEvent winners(int[] players) {
+        return new GameEvent(Type.WINNERS, -1, -1, -1, -1, -1, false, null, copy(players));
+    }
+
+    public static GameEvent resync(State state) {
+        return new GameEvent(Type.RESYNC, -1, -1, -1, -1, -1, false, null, null, state);
+    }
+
+    public static GameEvent dispose() {
+        return of(Type.DISPOSE, -1, -1, -1);
+    }
+
+    public static GameEvent keyPress(int player, int slot) {
+        return of(Type.KEY_PRESS, player, slot, -1);
+    }
+
+    public static GameEvent claim(int player, int[] slots) {
+        return new GameEvent(Type.CLAIM, player, -1, -1, -1, -1, false, null, copy(slots));
+    }
+
+    public static GameEvent verdict(int player, int verdict) {
+        return new GameEvent(Type.VERDICT, player, -1, -1, verdict, -1, false, null, null);
+    }
+
+    public static GameEvent reshuffle() {
+        return of(Type.RESHUFFLE, -1, -1, -1);
+    }
+
+    /**
+     * @return - the cards of PLACE_CARDS and REPLACE_SLOTS (null for the other types).
+     */
+    public int[] cards() {
+        return copy(cards);
+    }
+
+    /**
+     * @return - the slots of PLACE_CARDS, REPLACE_SLOTS and CLAIM (null for the other types).
+     */
+    public int[] slots() {
+        return type == Type.WINNERS ? null : copy(slots);
+    }
+
+    /**
+     * @return - the players of WINNERS (null for the other types).
+     */
+    public int[] winners() {
+        return type == Type.WINNERS ? copy(slots) : null;
+    }
+
+    /**
+     * @return - the state of RESYNC (null for the other types).
+     */
+    public State state() {
+        return state;
+    }
+
+    /**
+     * Makes the user interface call of this event (does nothing for the game listener events).
+     */
+    public void applyTo(UserInterface ui) {
+        switch (type) {
+            case PLACE_CARD: ui.placeCard(card, slot); break;
+            case REMOVE_CARD: ui.removeCard(slot); break;
+            case PLACE_CARDS: ui.placeCards(cards(), slots()); break;
+            case CLEAR_TABLE: ui.clearTable(); break;
+            case REPLACE_SLOTS: ui.replaceSlots(slots(), cards()); break;
+            case PLACE_TOKEN: ui.placeToken(player, slot); break;
+            case REMOVE_ALL_TOKENS: ui.removeTokens(); break;
+            case REMOVE_TOKENS: ui.removeTokens(slot); break;
+            case REMOVE_TOKEN: ui.removeToken(player, slot); break;
+            case COUNTDOWN: ui.setCountdown(millis, warn); break;
+            case ELAPSED: ui.setElapsed(millis); break;
+            case FREEZE: ui.setFreeze(player, millis); break;
+            case SCORE: ui.setScore(player, value); break;
+            case WINNERS: ui.announceWinner(winners()); break;
+            case RESYNC: state.applyTo(ui); break;
+            case DISPOSE: ui.dispose(); break;
+            default: // not a user interface call
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(type.name());
+        if (player >= 0) text.append(" player=").append(player);
+        if (slot >= 0) text.append(" slot=").append(slot);
+        if (card >= 0) text.append(" card=").append(card);
+        if (value >= 0 || type == Type.VERDICT) text.append(" value=").append(value);
+        if (millis >= 0) text.append(" millis=").append(millis).append(warn ? " warn" : "");
+        if (cards != null) text.append(" cards=").append(Arrays.toString(cards));
+        if (slots != null) text.append(type == Type.WINNERS ? " players=" : " slots=").append(Arrays.toString(slots));
+        return text.toString();
+    }
+}
@@ -0,0 +1,443 @@
+package bguspl.set.events;
+
+import bguspl.set.Config;
+import bguspl.set.GameListener;
+import bguspl.set.UserInterface;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the game events (the user interface calls and the game listener events) to any number of Flow
+ * subscribers, each with its own bounded queue and Backpressure policy.
+ * <p>
+ * Publishing an event only updates the publisher's copy of the user interface state and adds the event to the
+ * subscribers' queues (under a short lock), so a slow subscriber never adds latency to the dealer, table or player
+ * threads; the subscribers are called on the publisher's event threads, one call at a time per subscriber, in the
+ * order the events were published. A RESYNC subscriber that falls behind gets the current state instead of the
+ * events it missed.
+ */
+public class GameEventPublisher implements Flow.Publisher<GameEvent>, UserInterface, GameListener, AutoCloseable {
+
+    /**
+     * The default queue capacity of a subscriber.
+     */
+    public static final int DEFAULT_CAPACITY = Flow.defaultBufferSize();
+
+    private final Logger logger;
+    private final ExecutorService executor;
+
+    // the user interface state, for RESYNC events (guarded by this)
+    private final int[] cards;
+    private final boolean[][] tokens;
+    private final int[] scores;
+    private final long[] freezes;
+    private long countdown;
+    private boolean warn;
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public GameEventPublisher(Config config, Logger logger) {
+        this.logger = logger;
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new boolean[config.tableSize][config.players];
+        scores = new int[config.players];
+        freezes = new long[config.players];
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "events-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribes with the default capacity, resyncing the subscriber when it falls behind.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, Backpressure.RESYNC);
+    }
+
+    /**
+     * Subscribes: the subscriber gets a RESYNC event with the current state, then the events published from now on.
+     *
+     * @param capacity - the number of events that may wait for the subscriber.
+     * @param policy   - what to do with an event when capacity events are waiting.
+     */
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber, int capacity, Backpressure policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        Subscription subscription = new Subscription(subscriber, capacity, policy);
+        synchronized (this) {
+            if (closed) {
+                subscription.complete();
+            } else {
+                subscription.offer(resync()); // a late subscriber starts from the current state
+                subscriptions.add(subscription);
+            }
+        }
+        subscription.signal();
+    }
+
+    /**
+     * @return - the number of active subscriptions.
+     */
+    public int subscribers() {
+        return subscriptions.size();
+    }
+
+    private synchronized void publish(GameEvent event) {
+        update(event);
+        for (Subscription subscription : subscriptions) subscription.offer(event);
+    }
+
+    /**
+     * Applies an event to the user interface state (the caller holds the lock).
+     */
+    private void update(GameEvent event) {
+        switch (event.type) {
+            case PLACE_CARD:
+                cards[event.slot] = event.card;
+                break;
+            case REMOVE_CARD:
+                cards[event.slot] = -1;
+                break;
+            case PLACE_CARDS:
+            case REPLACE_SLOTS:
+                int[] eventCards = event.cards();
+                int[] eventSlots = event.slots();
+                for (int i = 0; i < eventSlots.length; i++) {
+                    cards[eventSlots[i]] = eventCards[i] < 0 ? -1 : eventCards[i];
+                    if (event.type == GameEvent.Type.REPLACE_SLOTS) Arrays.fill(tokens[eventSlots[i]], false);
+                }
+                break;
+            case CLEAR_TABLE:
+                Arrays.fill(cards, -1);
+                for (boolean[] slot : tokens) Arrays.fill(slot, false);
+                break;
+            case PLACE_TOKEN:
+                tokens[event.slot][event.player] = true;
+                break;
+            case REMOVE_ALL_TOKENS:
+                for (boolean[] slot : tokens) Arrays.fill(slot, false);
+                break;
+            case REMOVE_TOKENS:
+                Arrays.fill(tokens[event.slot], false);
+                break;
+            case REMOVE_TOKEN:
+                tokens[event.slot][event.player] = false;
+                break;
+            case COUNTDOWN:
+                countdown = event.millis;
+                warn = event.warn;
+                break;
+            case FREEZE:
+                freezes[event.player] = event.millis;
+                break;
+            case SCORE:
+                scores[event.player] = event.value;
+                break;
+            default: // not part of the state
+        }
+    }
+
+    /**
+     * @return - a RESYNC event with the current user interface state (the caller holds the lock).
+     */
+    private GameEvent resync() {
+        return GameEvent.resync(new GameEvent.State(cards, tokens, scores, freezes, countdown, warn));
+    }
+
+    /**
+     * Completes the subscriptions once their queued events are delivered, and waits (up to a second) for that.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            long dropped = subscription.dropped();
+            if (dropped > 0) logger.severe("event subscriber " + subscription.subscriber + " dropped " + dropped
+                    + " queued events (" + subscription.resyncs() + " resyncs)");
+            subscription.complete();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS))
+                logger.severe("event subscribers did not finish in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A subscription: a bounded ring of events (guarded by this) drained by one event thread at a time.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super GameEvent> subscriber;
+        private final Backpressure policy;
+        private final GameEvent[] queue;
+        private int head;
+        private int size;
+        private long dropped;
+        private long resyncs;
+        private boolean completed;
+        private Throwable error;
+
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger(); // the number of signals not handled by the drain loop
+        private boolean subscribed; // accessed by the drain loop only
+        private volatile boolean cancelled;
+
+        Subscription(Flow.Subscriber<? super GameEvent> subscriber, int capacity, Backpressure policy) {
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.queue = new GameEvent[capacity];
+        }
+
+        void offer(GameEvent event) {
+            synchronized (this) {
+                if (completed) return;
+                if (size == queue.length) {
+                    dropped++;
+                    switch (policy) {
+                        case DROP_NEWEST:
+                            return;
+                        case DROP_OLDEST:
+                            queue[head] = null;
+                            head = (head + 1) % queue.length;
+                            size--;
+                            break;
+                        case RESYNC: // called by publish, so the state includes this event
+                            dropped += size;
+                            Arrays.fill(queue, null);
+                            head = 0;
+                            queue[0] = resync();
+                            size = 1;
+                            resyncs++;
+                            signal();
+                            return;
+                        case CANCEL:
+                            logger.severe("event subscriber " + subscriber + " cancelled: too slow");
+                            fail(new IllegalStateException("the subscriber fell " + queue.length + " events behind"));
+                            signal();
+                            return;
+                    }
+                }
+                queue[(head + size) % queue.length] = event;
+                size++;
+            }
+            signal();
+        }
+
+        private synchronized GameEvent poll() {
+            if (size == 0) return null;
+            GameEvent event = queue[head];
+            queue[head] = null;
+            head = (head + 1) % queue.length;
+            size--;
+            return event;
+        }
+
+        /**
+         * Ends the subscription with onError (the queued events are discarded).
+         */
+        private synchronized void fail(Throwable throwable) {
+            completed = true;
+            error = throwable;
+            Arrays.fill(queue, null);
+            size = 0;
+        }
+
+        synchronized long dropped() {
+            return dropped;
+        }
+
+        synchronized long resyncs() {
+            return resyncs;
+        }
+
+        synchronized void complete() {
+            completed = true;
+        }
+
+        void signal() {
+            if (work.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    work.set(0); // closed
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable e) {
+                        abort(e);
+                    }
+                }
+                while (!cancelled && demand.get() > 0) {
+                    GameEvent event = poll();
+                    if (event == null) break;
+                    if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(event);
+                    } catch (Throwable e) {
+                        abort(e);
+                    }
+                }
+                if (!cancelled) {
+                    Throwable failure;
+                    boolean done;
+                    synchronized (this) {
+                        failure = error;
+                        done = completed && size == 0;
+                    }
+                    if (failure != null || done) {
+                        cancel();
+                        if (failure != null) subscriber.onError(failure);
+                        else subscriber.onComplete();
+                    }
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void abort(Throwable e) {
+            logger.severe("event subscriber " + subscriber + " failed: " + e);
+            cancel();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("non-positive request: " + n)); // rule 3.9
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+    }
+
+    // the user interface
+
+    @Override
+    public void placeCard(int card, int slot) {
+        publish(GameEvent.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        publish(GameEvent.removeCard(slot));
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        publish(GameEvent.placeCards(cards, slots));
+    }
+
+    @Override
+    public void clearTable() {
+        publish(GameEvent.clearTable());
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        publish(GameEvent.replaceSlots(slots, cards));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        publish(GameEvent.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        publish(GameEvent.removeTokens());
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        publish(GameEvent.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        publish(GameEvent.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        publish(GameEvent.countdown(millies, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        publish(GameEvent.elapsed(millies));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        publish(GameEvent.freeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        publish(GameEvent.score(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        publish(GameEvent.winners(players));
+    }
+
+    @Override
+    public void dispose() {
+        publish(GameEvent.dispose());
+    }
+
+    // the game listener
+
+    @Override
+    public void keyPress(int player, int slot) {
+        publish(GameEvent.keyPress(player, slot));
+    }
+
+    @Override
+    public void claim(int player, int[] slots) {
+        publish(GameEvent.claim(player, slots));
+    }
+
+    @Override
+    public void verdict(int player, int verdict) {
+        publish(GameEvent.verdict(player, verdict));
+    }
+
+    @Override
+    public void reshuffle() {
+        publish(GameEvent.reshuffle());
+    }
+}
@@ -0,0 +1,54 @@
+package bguspl.set.events;
+
+import bguspl.set.UserInterface;
+
+import java.util.concurrent.Flow;
+import java.util.logging.Logger;
+
+/**
+ * Subscribes a user interface to the game events: makes the user interface call of every event, on the publisher's
+ * event thread (the game listener events are ignored).
+ */
+public class UserInterfaceSubscriber implements Flow.Subscriber<GameEvent> {
+
+    private final String name;
+    private final UserInterface ui;
+    private final Logger logger;
+
+    /**
+     * @param name - the subscriber's name (in the log).
+     */
+    public UserInterfaceSubscriber(String name, UserInterface ui, Logger logger) {
+        this.name = name;
+        this.ui = ui;
+        this.logger = logger;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE); // the publisher's bounded queue applies the back-pressure
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        event.applyTo(ui);
+    }
+
+    /**
+     * The subscription ended with an error (e.g. it was cancelled for being too slow): the user interface gets no more
+     * updates.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        logger.severe("the " + name + " stopped getting game events: " + throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
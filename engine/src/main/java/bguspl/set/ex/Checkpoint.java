@@ -0,0 +1,213 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A checkpoint of a running game: the deck, the cards on the table, the players' tokens, scores and remaining freeze
+ * times, and the time left until the next reshuffle. Taken by the dealer thread (see Dealer.checkpoint) and restored
+ * with Dealer.resume.
+ * <p>
+ * Encoding (big endian):
+ * <pre>
+ *   magic (i32, "SETC"), format (u8), deck size (u16), table size (u16), players (u16),
+ *   the time left until the reshuffle (i64 millis),
+ *   the deck: a bitset of (deck size + 63) / 64 longs (bit c is set iff card c is in the deck),
+ *   the table: a bitset of (table size + 63) / 64 longs (bit s is set iff slot s has a card),
+ *              then the card of every set slot, in slot order (u16),
+ *   per player: the slots of the player's tokens, a bitset of (table size + 63) / 64 longs,
+ *   per player: score (i32),
+ *   per player: the freeze time left (i32 millis).
+ * </pre>
+ * The tokens of a claim in the dealer's queue are not kept (the claim is lost; the player presses again). The other
+ * tokens are kept, including a full set of a player that was penalized for it (or whose claim was not queued yet):
+ * after the restore, such a player removes a token before claiming again, as after a penalty.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x53455443;
+    private static final int FORMAT = 1;
+
+    final int deckSize;
+    final int tableSize;
+    final int players;
+    final long remainingMillis;
+    final long[] deck;
+    final int[] slotToCard; // -1 for an empty slot
+    final long[][] tokens; // [player][slot / 64]
+    final int[] scores;
+    final int[] freezeMillis;
+
+    Checkpoint(int deckSize, int tableSize, int players, long remainingMillis) {
+        this.deckSize = deckSize;
+        this.tableSize = tableSize;
+        this.players = players;
+        this.remainingMillis = remainingMillis;
+        deck = new long[words(deckSize)];
+        slotToCard = new int[tableSize];
+        tokens = new long[players][words(tableSize)];
+        scores = new int[players];
+        freezeMillis = new int[players];
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) / 64;
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * @return - the cards in the deck, in increasing order.
+     */
+    List<Integer> deck() {
+        List<Integer> cards = new ArrayList<>();
+        for (int card = 0; card < deckSize; card++)
+            if (get(deck, card)) cards.add(card);
+        return cards;
+    }
+
+    /**
+     * @return - an upper bound of the encoded size.
+     */
+    public int maxSize() {
+        return 4 + 1 + 3 * 2 + 8 + 8 * deck.length + 8 * words(tableSize) + 2 * tableSize
+                + players * (8 * words(tableSize) + 4 + 4);
+    }
+
+    /**
+     * Encodes the checkpoint at the position of a buffer with at least maxSize() bytes remaining.
+     */
+    public void encode(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).put((byte) FORMAT)
+                .putShort((short) deckSize).putShort((short) tableSize).putShort((short) players)
+                .putLong(remainingMillis);
+        for (long word : deck) buffer.putLong(word);
+        long[] occupied = new long[words(tableSize)];
+        for (int slot = 0; slot < tableSize; slot++)
+            if (slotToCard[slot] >= 0) set(occupied, slot);
+        for (long word : occupied) buffer.putLong(word);
+        for (int card : slotToCard)
+            if (card >= 0) buffer.putShort((short) card);
+        for (long[] playerTokens : tokens)
+            for (long word : playerTokens) buffer.putLong(word);
+        for (int score : scores) buffer.putInt(score);
+        for (int millis : freezeMillis) buffer.putInt(millis);
+    }
+
+    /**
+     * Decodes a checkpoint (the buffer is positioned after it).
+     *
+     * @throws IOException - if the buffer does not hold a valid checkpoint.
+     */
+    public static Checkpoint decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("not a game checkpoint");
+            int format = buffer.get();
+            if (format != FORMAT) throw new IOException("unknown checkpoint format " + format);
+            int deckSize = Short.toUnsignedInt(buffer.getShort());
+            int tableSize = Short.toUnsignedInt(buffer.getShort());
+            int players = Short.toUnsignedInt(buffer.getShort());
+            Checkpoint checkpoint = new Checkpoint(deckSize, tableSize, players, buffer.getLong());
+            for (int i = 0; i < checkpoint.deck.length; i++) checkpoint.deck[i] = buffer.getLong();
+            checkRange(checkpoint.deck, deckSize, "card");
+            long[] occupied = new long[words(tableSize)];
+            for (int i = 0; i < occupied.length; i++) occupied[i] = buffer.getLong();
+            checkRange(occupied, tableSize, "slot");
+            for (int slot = 0; slot < tableSize; slot++) {
+                int card = get(occupied, slot) ? Short.toUnsignedInt(buffer.getShort()) : -1;
+                if (card >= deckSize || card >= 0 && get(checkpoint.deck, card))
+                    throw new IOException("invalid card " + card + " in slot " + slot);
+                checkpoint.slotToCard[slot] = card;
+            }
+            for (int player = 0; player < players; player++) {
+                long[] playerTokens = checkpoint.tokens[player];
+                for (int i = 0; i < playerTokens.length; i++) {
+                    playerTokens[i] = buffer.getLong();
+                    long stray = playerTokens[i] & ~occupied[i]; // a token on an empty slot, or beyond the table
+                    if (stray != 0)
+                        throw new IOException("invalid token of player " + player + " in slot "
+                                + (i * 64 + Long.numberOfTrailingZeros(stray)));
+                }
+            }
+            for (int player = 0; player < players; player++) checkpoint.scores[player] = buffer.getInt();
+            for (int player = 0; player < players; player++) checkpoint.freezeMillis[player] = buffer.getInt();
+            return checkpoint;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated checkpoint");
+        }
+    }
+
+    /**
+     * @throws IOException - if a bitset has a bit set at or beyond its size (in its last word).
+     */
+    private static void checkRange(long[] bits, int size, String what) throws IOException {
+        if (size % 64 == 0) return;
+        long stray = bits[bits.length - 1] & -1L << size;
+        if (stray != 0)
+            throw new IOException("invalid " + what + " " + ((bits.length - 1) * 64 + Long.numberOfTrailingZeros(stray)));
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @throws IOException - if the file cannot be read, or does not hold a valid checkpoint.
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * @throws IllegalArgumentException - if the checkpoint is not of a game with this configuration.
+     */
+    public void check(Config config) {
+        if (deckSize != config.deckSize || tableSize != config.tableSize || players != config.players)
+            throw new IllegalArgumentException("the checkpoint is of a game with " + deckSize + " cards, " + tableSize
+                    + " slots and " + players + " players");
+    }
+
+    /**
+     * @return - the number of cards in the deck.
+     */
+    public int deckCards() {
+        int cards = 0;
+        for (long word : deck) cards += Long.bitCount(word);
+        return cards;
+    }
+
+    /**
+     * @return - the number of cards on the table.
+     */
+    public int tableCards() {
+        int cards = 0;
+        for (int card : slotToCard)
+            if (card >= 0) cards++;
+        return cards;
+    }
+
+    /**
+     * @return - the time left until the reshuffle, in milliseconds.
+     */
+    public long remainingMillis() {
+        return remainingMillis;
+    }
+
+    /**
+     * @return - the score of a player.
+     */
+    public int score(int player) {
+        return scores[player];
+    }
+}
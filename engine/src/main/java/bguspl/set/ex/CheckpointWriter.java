@@ -0,0 +1,102 @@
+package bguspl.set.ex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the checkpoints encoded by the dealer thread to a file, on a background thread: the dealer only encodes a
+ * checkpoint (microseconds) and hands it over. If the writer falls behind, only the latest checkpoint is written.
+ * A checkpoint is written to a temporary file that then replaces the file, so the file always holds a whole
+ * checkpoint.
+ */
+class CheckpointWriter implements AutoCloseable {
+
+    private final Path file;
+    private final Path temporary;
+    private final Logger logger;
+    private final AtomicReference<ByteBuffer> latest = new AtomicReference<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    CheckpointWriter(Path file, Logger logger) {
+        this.file = file.toAbsolutePath();
+        this.temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        this.logger = logger;
+        thread = new Thread(this::run, "checkpoints");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands an encoded checkpoint over to the writer thread (replacing one that was not written yet).
+     *
+     * @param checkpoint - the checkpoint, from its position to its limit (the writer takes ownership).
+     */
+    void submit(ByteBuffer checkpoint) {
+        latest.set(checkpoint);
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (true) {
+            ByteBuffer checkpoint = latest.getAndSet(null);
+            if (checkpoint != null) write(checkpoint);
+            else if (closed) return;
+            else LockSupport.park(this);
+        }
+    }
+
+    private void write(ByteBuffer checkpoint) {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (checkpoint.hasRemaining()) channel.write(checkpoint);
+            channel.force(false);
+        } catch (IOException e) {
+            logger.severe("cannot write checkpoint " + temporary + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.severe("cannot replace checkpoint " + file + ": " + e.getMessage());
+            return;
+        }
+        logger.log(Level.FINE, "checkpoint written to {0}", file);
+    }
+
+    /**
+     * Deletes the checkpoint file (when the game is over). Call after close.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(temporary);
+            logger.severe("the game is over, checkpoint " + file + " deleted");
+        } catch (IOException e) {
+            logger.severe("cannot delete checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the last checkpoint submitted (if any), and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
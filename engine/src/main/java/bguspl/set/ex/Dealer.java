@@ -0,0 +1,599 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.GameThreads;
+import bguspl.set.GameListener;
+import bguspl.set.InputTrace;
+import bguspl.set.jfr.CheckSetEvent;
+import bguspl.set.jfr.ClaimEvent;
+import bguspl.set.jfr.LockWaitEvent;
+import bguspl.set.jfr.ReshuffleEvent;
+import bguspl.set.jfr.VerdictEvent;
+import bguspl.set.metrics.ClaimTrace;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import java.util.Queue;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.lang.Math;
+
+/**
+ * This class manages the dealer's threads and data
+ */
+public class Dealer implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The list of card ids that are left in the dealer's deck.
+     */
+    private List<Integer> deck;
+
+    /**
+     * The random stream used to draw cards and slots (seeded from the game seed, see RandomSource).
+     */
+    private final SplittableRandom random;
+
+    /**
+     * queue of players to check
+     */
+    private Queue<Player> qPlayerToCheck;
+    /**
+     * 
+     * True iff game should be terminated due to an external event.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     */
+    private long reshuffleTime;
+
+    /**
+     * The thread representing the dealer.
+     */
+    private Thread dealerThread;
+
+    /**
+     * contains all threads of the players in the game
+     */
+    private GameThreads.Handle[] threadsArray;
+
+    protected volatile boolean lockGame;
+
+    /**
+     * Writes the periodic checkpoints (null if checkpoints are disabled).
+     */
+    private final CheckpointWriter checkpoints;
+
+    /**
+     * The time of the next checkpoint.
+     */
+    private long nextCheckpoint;
+
+    /**
+     * The checkpoint whose table is placed when the dealer thread starts (null for a new game).
+     */
+    private Checkpoint resume;
+
+    /**
+     * The gate the dealer thread passes through when it checks claims (see replay).
+     */
+    private ReplayGate gate = ReplayGate.NONE;
+
+    //protected int[] counter;
+
+// private Boolean nonHuman;
+
+    public Dealer(Env env, Table table, Player[] players) {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        this.random = env.random.stream("dealer");
+        this.qPlayerToCheck = new LinkedList<Player>();
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        reshuffleTime = env.config.turnTimeoutMillis;
+        // initialize players threads
+        threadsArray = new GameThreads.Handle[players.length];
+        lockGame = true;
+        checkpoints = env.config.checkpointFile.isEmpty() ? null
+                : new CheckpointWriter(Paths.get(env.config.checkpointFile), env.logger);
+        //Starvation Check
+        //counter = new int[players.length];
+        // for(int i = 0; i < counter.length; i++)
+        // {
+        //     counter[i] = 0;
+        // }
+    }
+
+    /**
+     * The dealer thread starts here (main loop for the dealer thread).
+     */
+    @Override
+    public void run() {
+        dealerThread = Thread.currentThread();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        env.clock.register();
+
+        for (int i = 0; i < threadsArray.length; i++) {
+            env.clock.starting();
+            threadsArray[i] = env.threads.start(players[i], "player-" + i);
+        }
+        //lockAll();
+        nextCheckpoint = env.clock.millis() + env.config.checkpointIntervalMillis;
+        while (resume != null || !shouldFinish()) {
+            if (resume != null) {
+                resumeTable();
+            } else {
+                placeAllCardsOnTable();
+                updateTimerDisplay(true);
+            }
+            unlockAll();
+            timerLoop();
+            lockAll();
+            removeAllCardsFromTable();
+            if (!terminate) env.listener.reshuffle();
+        }
+        //Starvation check
+        // for(int i =0; i < players.length; i++){
+        //     System.out.print(counter[i]+ "    ");
+        // }
+        announceWinners();
+        if (checkpoints != null) {
+            checkpoints.close();
+            if (!terminate) checkpoints.delete(); // the game is over, there is nothing left to resume
+        }
+        env.clock.unregister(); // the time must keep going while the players finish
+        terminate();
+    }
+
+    private void lockAll() {
+        lockGame = true;
+    }
+
+    private void unlockAll() {
+        lockGame = false;
+    }
+
+    /**
+     * The inner loop of the dealer thread that runs as long as the countdown did
+     * not time out.
+     */
+    private void timerLoop() {
+        while (!terminate && env.clock.millis() < reshuffleTime) {
+            updateTimerDisplay(false);
+            sleepUntilWokenOrTimeout();
+            while (claimsToCheck()) {
+                dealerCheck();
+            }
+            if (checkpoints != null && env.clock.millis() >= nextCheckpoint) writeCheckpoint();
+        }
+    }
+
+    /**
+     * Takes a checkpoint of the game. Called by the dealer thread between claims, so the deck, the cards and the
+     * scores cannot change meanwhile (and no claim is being checked); the tokens are read under the tokens lock.
+     *
+     * @return - the checkpoint.
+     */
+    Checkpoint checkpoint() {
+        long now = env.clock.millis();
+        Checkpoint checkpoint = new Checkpoint(env.config.deckSize, env.config.tableSize, players.length,
+                Math.max(0, reshuffleTime - now));
+        for (int card : deck) Checkpoint.set(checkpoint.deck, card);
+        Set<Player> claiming;
+        synchronized (qPlayerToCheck) {
+            claiming = new HashSet<>(qPlayerToCheck);
+        }
+        synchronized (table.tokens) {
+            for (int slot = 0; slot < env.config.tableSize; slot++) {
+                Integer card = table.slotToCard[slot];
+                checkpoint.slotToCard[slot] = card == null ? -1 : card;
+                for (Player p : table.tokens[slot])
+                    if (!claiming.contains(p)) // not a claim waiting for the dealer
+                        Checkpoint.set(checkpoint.tokens[p.id], slot);
+            }
+        }
+        for (Player p : players) {
+            checkpoint.scores[p.id] = p.score();
+            checkpoint.freezeMillis[p.id] = (int) p.freezeLeft(now);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Takes a checkpoint and hands it over to the checkpoint writer.
+     */
+    private void writeCheckpoint() {
+        long started = System.nanoTime();
+        Checkpoint checkpoint = checkpoint();
+        ByteBuffer buffer = ByteBuffer.allocate(checkpoint.maxSize());
+        checkpoint.encode(buffer);
+        buffer.flip();
+        checkpoints.submit(buffer);
+        nextCheckpoint = env.clock.millis() + env.config.checkpointIntervalMillis;
+        if (env.logger.isLoggable(Level.FINE))
+            env.logger.log(Level.FINE, "checkpoint of {0} bytes taken in {1} us",
+                    new Object[]{buffer.remaining(), (System.nanoTime() - started) / 1000});
+    }
+
+    /**
+     * Resumes the game of a checkpoint: restores the deck and the players' scores and freezes now, and places the
+     * cards and tokens when the dealer thread starts. Must be called before the dealer thread starts.
+     *
+     * @throws IllegalArgumentException - if the checkpoint is not of a game with this configuration.
+     */
+    public void resume(Checkpoint checkpoint) {
+        checkpoint.check(env.config);
+        deck = checkpoint.deck();
+        for (Player p : players) p.resume(checkpoint.scores[p.id], checkpoint.freezeMillis[p.id]);
+        resume = checkpoint;
+    }
+
+    /**
+     * Replays a trace: the players place and remove their tokens, and the dealer checks the claims in the recorded
+     * order, between the same changes to the cards as in the recording (see InputTrace and TraceGate). Must be called
+     * before the dealer thread starts.
+     */
+    public void replay(InputTrace trace) {
+        gate = new TraceGate(trace, env.clock, players.length, qPlayerToCheck);
+        table.gate = gate;
+        for (Player p : players) p.gate = gate;
+    }
+
+    /**
+     * Places the cards and tokens of the checkpoint being resumed, and resumes its countdown.
+     */
+    private void resumeTable() {
+        Checkpoint checkpoint = resume;
+        resume = null;
+        int count = checkpoint.tableCards();
+        int[] cards = new int[count];
+        int[] slots = new int[count];
+        for (int slot = 0, i = 0; slot < env.config.tableSize; slot++) {
+            if (checkpoint.slotToCard[slot] < 0) continue;
+            cards[i] = checkpoint.slotToCard[slot];
+            slots[i++] = slot;
+        }
+        table.placeCards(cards, slots);
+        for (Player p : players)
+            for (int slot = 0; slot < env.config.tableSize; slot++)
+                if (Checkpoint.get(checkpoint.tokens[p.id], slot) && table.slotToCard[slot] != null
+                        && p.getSet().size() < env.config.featureSize)
+                    table.placeToken(p, slot);
+        reshuffleTime = env.clock.millis() + checkpoint.remainingMillis;
+        updateTimerDisplay(false);
+        if (env.config.hints) table.hints();
+    }
+
+    private void dealerCheck() {
+        Player p;
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (qPlayerToCheck) {
+            wait.acquired("claims", -1);
+            p = takeClaim(gate.nextClaim());
+            env.metrics.claimQueueDepth(qPlayerToCheck.size());
+        }
+        env.listener.claimTaken(p.id, table.changes());
+        ClaimTrace trace = p.claimTrace();
+        if (trace != null) trace.stamp(ClaimTrace.Boundary.DEQUEUED);
+        VerdictEvent verdict = new VerdictEvent();
+        verdict.begin();
+        // the claimed slots and cards, before the cards of a legal set are replaced
+        int[] slots = verdict.isEnabled() ? claimedSlots(p) : null;
+        int[] cards = verdict.isEnabled() ? cardsIn(slots) : null;
+        if (p.getSet().size() == env.config.featureSize) { // set in legal size
+            //System.out.println("before checkSet: " + p.id + " currSet in dealerCheck: " + p.getSet());
+            boolean isLegal = checkSet(p, trace);
+            if (trace != null) trace.stamp(ClaimTrace.Boundary.DONE);
+            env.listener.verdict(p.id, isLegal ? GameListener.VERDICT_POINT : GameListener.VERDICT_PENALTY);
+            if (isLegal) 
+                p.point();
+            else 
+                p.penalty();
+            verdict.verdict = isLegal ? "point" : "penalty";
+            env.metrics.completeTrace(trace, isLegal ? GameListener.VERDICT_POINT : GameListener.VERDICT_PENALTY);
+        }
+        else {
+            env.listener.verdict(p.id, GameListener.VERDICT_CANCELLED);
+            p.cancel();
+            verdict.verdict = "cancelled";
+            if (trace != null) trace.stamp(ClaimTrace.Boundary.DONE);
+            env.metrics.completeTrace(trace, GameListener.VERDICT_CANCELLED);
+        }
+        verdict.end();
+        if (verdict.shouldCommit()) {
+            verdict.player = p.id;
+            verdict.slots = Arrays.toString(slots);
+            verdict.cards = Arrays.toString(cards);
+            verdict.commit();
+        }
+        synchronized (p) {
+            env.clock.signal(p);
+        }
+
+    }
+
+    /**
+     * @return - true iff there is a claim to check (when replaying, see TraceGate, only the recorded claims, between
+     *           the same changes to the cards as in the recording).
+     */
+    private boolean claimsToCheck() {
+        if (!gate.claimDue()) return false;
+        gate.awaitClaim();
+        return !qPlayerToCheck.isEmpty();
+    }
+
+    /**
+     * Removes the claim of a player from the queue, or the first claim if the player has none queued (the caller must
+     * hold qPlayerToCheck).
+     */
+    private Player takeClaim(int player) {
+        if (player < 0) return qPlayerToCheck.remove();
+        for (Iterator<Player> it = qPlayerToCheck.iterator(); it.hasNext(); ) {
+            Player p = it.next();
+            if (p.id == player) {
+                it.remove();
+                return p;
+            }
+        }
+        return qPlayerToCheck.remove();
+    }
+
+    
+    /**
+     * Checks if it is a legal Set
+     */
+    private boolean checkSet(Player p, ClaimTrace trace) {
+        boolean isLegal = false;
+        CheckSetEvent event = new CheckSetEvent();
+        event.begin();
+
+        int[] set = new int[env.config.featureSize];
+        int[] mySlots = new int[env.config.featureSize];
+        LinkedList<Integer> currSet = p.getSet();
+        for (int i = 0; i < currSet.size(); i++) {
+            int slot = currSet.get(i);
+            int card = table.slotToCard[slot];
+            set[i] = card;
+            mySlots[i] = slot;
+        }
+
+        isLegal = env.util.testSet(set);
+        if (trace != null) trace.stamp(ClaimTrace.Boundary.CHECKED);
+
+        if (isLegal) {
+            lockAll();
+            replaceCardsOnTable(mySlots);
+            updateTimerDisplay(true);
+            unlockAll();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = p.id;
+            event.legal = isLegal;
+            event.cards = Arrays.toString(set);
+            event.commit();
+        }
+    
+        return isLegal;
+    }
+
+    /**
+     * The slots a player currently has tokens on (the claim being checked).
+     */
+    private int[] claimedSlots(Player p) {
+        synchronized (p.getSet()) {
+            return p.getSet().stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * The cards in the given slots (-1 for an empty slot).
+     */
+    private int[] cardsIn(int[] slots) {
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            Integer card = table.slotToCard[slots[i]];
+            cards[i] = card == null ? -1 : card;
+        }
+        return cards;
+    }
+
+    /**
+     * Removes the cards of a legal set from the table and replaces them with cards from the deck (if any are left).
+     */
+    private void replaceCardsOnTable(int[] currSet) {
+        int[] cards = new int[currSet.length];
+        for (int i = 0; i < currSet.length; i++) {
+            if (deck.isEmpty()) {
+                cards[i] = -1;
+            } else {
+                int cardIndex = random.nextInt(deck.size());
+                cards[i] = deck.remove(cardIndex);
+            }
+        }
+        table.replaceCards(currSet, cards);
+        if (env.config.hints) table.hints();
+    }
+
+    /**
+     * Returns all the cards from the table to the deck.
+     */
+    private void removeAllCardsFromTable() {
+        ReshuffleEvent event = new ReshuffleEvent();
+        event.begin();
+        List<Integer> removed = table.removeAllCards();
+        deck.addAll(removed); // return to deck
+        event.end();
+        if (event.shouldCommit()) {
+            event.cards = removed.size();
+            event.deck = deck.size();
+            event.commit();
+        }
+    }
+
+    private void placeAllCardsOnTable() {
+        // TODO implement
+        int tableS = env.config.tableSize;
+        LinkedList<Integer> s = new LinkedList<Integer>(); // list of slots
+        for (int j = 0; j < tableS; j++) {
+            s.add((Integer) j);
+        }
+
+        int count = Math.min(tableS, deck.size());
+        int[] cards = new int[count];
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            int cardIndex = random.nextInt(deck.size());
+            int slotIndex = random.nextInt(s.size());
+            cards[i] = deck.remove(cardIndex);
+            slots[i] = s.remove(slotIndex);
+        }
+        table.placeCards(cards, slots);
+        if (env.config.hints) table.hints();
+    }
+
+    /**
+     * Called when the game should be terminated due to an external event.
+     */
+    public void terminate() {
+        // TODO implement
+        gate.terminate(); // before the player threads are joined, they may wait in it
+        for (Player p : players) {
+            try {
+                p.terminate();
+                if (threadsArray[p.id] != null) { // null if terminated before the players started
+                    threadsArray[p.id].interrupt();
+                    threadsArray[p.id].join();
+                }
+            } catch (InterruptedException e) {}
+            terminate = true;
+        }
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Check if the game should be terminated or the game end conditions are met.
+     *
+     * @return true iff the game should be finished.
+     */
+    private boolean shouldFinish() {
+        return terminate || env.util.findSets(deck, 1).size() == 0;
+    }
+
+    /**
+     * Sleep for a fixed amount of time or until the thread is awakened for some
+     * purpose.
+     */
+    private void sleepUntilWokenOrTimeout() {
+        synchronized (qPlayerToCheck) {
+            if (qPlayerToCheck.isEmpty() || !gate.claimDue()) {
+                long delta = reshuffleTime - env.clock.millis();
+                if (delta <= env.config.turnTimeoutWarningMillis) {
+                    try {
+                        env.clock.await(qPlayerToCheck, 10);
+                    } catch (InterruptedException e) {}
+                } else {
+                    try {
+                        env.clock.await(qPlayerToCheck, 1000);
+                    } catch (InterruptedException e) {}
+                }
+            }
+        }
+    }
+
+    /**
+     * Reset and/or update the countdown and the countdown display.
+     * reset = false : countdown update
+     * reset = true : shuffle time, need to update the timer to 60
+     */
+    private void updateTimerDisplay(boolean reset) {
+        // TODO implement
+        if (reset) {
+            reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis;
+            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
+        } else {
+            long delta = reshuffleTime - env.clock.millis();
+            if (delta <= 5000) // warn
+            {
+                reset = true;
+            }
+            env.ui.setCountdown(delta, reset);
+        }
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them.
+     */
+    protected int[] announceWinners() {
+        // TODO implement
+        int max = 0;
+        int count = 0;
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].score() > max) {
+                max = players[i].score();
+                count = 1;
+
+            } else if (players[i].score() == max) {
+                count++;
+            }
+        }
+        int[] winners = new int[count];
+        int j = 0;
+        for (Player p : players) {
+            if (p.score() == max) {
+                winners[j] = p.id;
+                j++;
+            }
+        }
+        env.ui.announceWinner(winners);
+        return(winners);
+    }
+
+    public void addPlayerToQ(Player p) {
+        ClaimEvent claim = new ClaimEvent();
+        claim.begin();
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized(qPlayerToCheck) {
+            wait.acquired("claims", p.id);
+            ClaimTrace trace = p.claimTrace();
+            if (trace != null) trace.stamp(ClaimTrace.Boundary.SUBMITTED);
+            qPlayerToCheck.add(p);
+            env.metrics.claimQueueDepth(qPlayerToCheck.size());
+            env.clock.signal(qPlayerToCheck);}
+        claim.end();
+        if (claim.shouldCommit()) {
+            int[] slots = claimedSlots(p);
+            claim.player = p.id;
+            claim.slots = Arrays.toString(slots);
+            claim.cards = Arrays.toString(cardsIn(slots));
+            claim.commit();
+        }
+    }
+
+    public Queue<Player> getPlayersQ() {
+       return qPlayerToCheck;
+    }
+}
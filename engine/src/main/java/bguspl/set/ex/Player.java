@@ -0,0 +1,423 @@
+package bguspl.set.ex;
+
+import java.util.logging.Level;
+
+import bguspl.set.Env;
+import bguspl.set.GameThreads;
+import bguspl.set.jfr.FreezeEvent;
+import bguspl.set.metrics.ClaimTrace;
+import bguspl.set.metrics.Metrics;
+import java.lang.Math;
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class manages the players' threads and data
+ *
+ * @inv id >= 0
+ * @inv score >= 0
+ */
+public class Player implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+
+    /**
+     * The id of the player (starting from 0).
+     */
+    public final int id;
+
+    /**
+     * The thread representing the current player.
+     */
+    private Thread playerThread;
+
+    /**
+     * The thread of the AI (computer) player (an additional thread used to generate
+     * key presses).
+     */
+    private GameThreads.Handle aiThread;
+
+    /**
+     * True iff the player is human (not a computer player).
+     */
+    private final boolean human;
+
+    /**
+     * True iff game should be terminated due to an external event.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The current score of the player.
+     */
+    private int score;
+    /**
+     * The Queue of the player's key presses.
+     */
+    private BlockingQueue<Integer> myKeyPresses;
+
+    /**
+     * The traces of the key presses in myKeyPresses, in the same order (empty if tracing is disabled; guarded by
+     * myKeyPresses).
+     */
+    private final ArrayDeque<ClaimTrace> pressTraces = new ArrayDeque<>();
+
+    /**
+     * The trace of the claim being checked by the dealer (null if tracing is disabled).
+     */
+    private volatile ClaimTrace claimTrace;
+
+    /**
+     * The gate the player thread passes through when it places or removes a token (see Dealer.replay).
+     */
+    ReplayGate gate = ReplayGate.NONE;
+
+    /**
+     * The max key presses of a player.
+     */
+    private final int capacity;
+
+    private final Dealer dealer;
+
+    /**
+     * The random stream of the AI (seeded from the game seed, see RandomSource).
+     */
+    private final SplittableRandom random;
+
+    protected LinkedList<Integer> currSet; // list of tokens
+
+    //private boolean backFromPenalty;
+
+    private long freezeTimer;
+
+    /**
+     * The time the player's current freeze ends (for checkpoints).
+     */
+    private volatile long freezeUntil;
+
+    private volatile boolean isSleeping;
+
+    private volatile boolean checked;
+
+    /**
+     * The class constructor.
+     *
+     * @param env    - the environment object.
+     * @param dealer - the dealer object.
+     * @param table  - the table object.
+     * @param id     - the id of the player.
+     * @param human  - true iff the player is a human player (i.e. input is provided
+     *               manually, via the keyboard).
+     */
+    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
+        this.env = env;
+        this.dealer = dealer;
+        this.table = table;
+        this.id = id;
+        this.human = human;
+        this.capacity = env.config.featureSize; // 3
+        this.myKeyPresses = new ArrayBlockingQueue<>(this.capacity);
+        this.random = env.random.stream("computer-" + id);
+        freezeTimer = 0;
+        currSet = new LinkedList<Integer>();
+        isSleeping = false;
+        checked = false;
+    }
+
+    /**
+     * The main player thread of each player starts here (main loop for the player
+     * thread).
+     */
+    @Override
+    public void run() {
+        playerThread = Thread.currentThread();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
+        env.clock.register();
+        if (!human)
+            createArtificialIntelligence();
+
+        while (!terminate) {
+            // if should sleep because penalty or point
+            if (isSleeping && freezeTimer > 0) { // player in freeze time
+                FreezeEvent freeze = new FreezeEvent();
+                freeze.begin();
+                for (long i = freezeTimer/1000; i > 0; i--){
+                    env.ui.setFreeze(id, i*1000);
+                    try {
+                        env.clock.sleep(1000);
+                    } catch (InterruptedException e) {}
+                }
+                env.ui.setFreeze(id, 0);
+                freeze.end();
+                if (freeze.shouldCommit()) {
+                    freeze.player = id;
+                    freeze.millis = freezeTimer;
+                    freeze.commit();
+                }
+                freezeTimer = 0;
+            }
+            // back to work
+            checked = false;
+            isSleeping = false;
+            int slot;
+            ClaimTrace trace;
+            synchronized (myKeyPresses) {
+                env.clock.signal(myKeyPresses); // the freeze is over, wakes the ai
+            while (myKeyPresses.isEmpty() && !terminate) { // sleep until there is a new press
+                    try {
+                        env.clock.await(myKeyPresses, 0);
+                    } catch (InterruptedException e) {}
+                }
+                if (myKeyPresses.isEmpty()) break; // terminated while waiting
+                slot = myKeyPresses.remove();
+                trace = pressTraces.poll();
+                env.clock.signal(myKeyPresses);
+            }
+            if (trace != null) trace.stamp(ClaimTrace.Boundary.TAKEN);
+            consume(slot, trace);
+        }
+        env.clock.unregister();
+
+        if (!human){
+            try {
+                aiThread.join();
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+
+    private void createArtificialIntelligence() {
+        // note: this is a very very smart AI (!)
+
+        env.clock.starting();
+        aiThread = env.threads.start(() -> {
+            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+            env.clock.register();
+            while (!terminate) {
+                // TODO implement player key press simulator
+                boolean accepted;
+                synchronized (myKeyPresses) {
+                    while ((myKeyPresses.size() == capacity || isSleeping) && !terminate) { // full or frozen
+                        try {
+                            env.clock.await(myKeyPresses, 0);
+                        } catch (InterruptedException e) {}
+                    }
+                    accepted = Player.this.keyPressed(randomSlot());
+                }
+                if (!accepted) { // the game is locked, wait a little
+                    synchronized (myKeyPresses) {
+                        try {
+                            env.clock.await(myKeyPresses, 10);
+                        } catch (InterruptedException e) {}
+                    }
+                } else if (env.config.computerDelayMillis > 0) { // the same pace as in the event loop
+                    try {
+                        env.clock.sleep(env.config.computerDelayMillis);
+                    } catch (InterruptedException e) {}
+                }
+            }
+            env.clock.unregister();
+
+            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        }, "computer-" + id);
+        System.out.println("ai Thread: computer-" + id);
+
+    }
+
+    // Consumes from myKeyPresses and putting into currSet accordingly
+    private void consume(int slot, ClaimTrace trace) {
+        boolean claim = false;
+        int tableChanges;
+        gate.consuming(id);
+        synchronized (table.tokens) { // the cards cannot change meanwhile
+            tableChanges = table.changes();
+            if (table.slotToCard[slot] != null) {
+                if (table.tokens[slot].contains(this)) // remove token
+                {
+                    table.removeToken(this, slot);
+                    if (trace != null) trace.stamp(ClaimTrace.Boundary.PLACED);
+                }
+                else if (currSet.size() < capacity) { // place token, if there is one left
+                    table.placeToken(this, slot);
+                    if (trace != null) trace.stamp(ClaimTrace.Boundary.PLACED);
+                    claim = currSet.size() == capacity; // if it is the third token
+                }
+            }
+        }
+        env.listener.keyTaken(id, tableChanges);
+        gate.consumed(id);
+        if (!claim) {
+            env.metrics.completeTrace(trace);
+            return;
+        }
+        isSleeping = true; // blocking ai when dealer check set
+        env.listener.claim(id, claimedSlots());
+        claimTrace = trace; // completed by the dealer with the verdict
+        dealer.addPlayerToQ(this); // Checking set
+        //dealer.counter[id]++;
+        try {
+            synchronized (this) {
+                while (!checked)
+                    env.clock.await(this, 0);
+            }
+        } catch (InterruptedException e) {}
+    }
+
+    /**
+     * @return - the trace of the claim being checked by the dealer (null if tracing is disabled).
+     */
+    ClaimTrace claimTrace() {
+        return claimTrace;
+    }
+
+    private int[] claimedSlots() {
+        synchronized (currSet) {
+            return currSet.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private int randomSlot() {
+        int slot = random.nextInt(env.config.playerKeys(this.id).length);
+        return slot;
+    }
+
+    //public void newCurrSet() {
+    //    currSet = new LinkedList<Integer>();
+    //}
+
+    public void setCurrSet(int slot) { // remove token from currSet
+        synchronized(currSet){              
+            currSet.remove((Integer) slot);
+        }
+    }
+    
+
+    /**
+     * Called when the game should be terminated due to an external event.
+     */
+    public void terminate() {
+        // TODO implement
+        terminate = true; // before the interrupt, so the ai cannot miss both
+        if(!human && aiThread != null)
+        {
+            aiThread.interrupt();
+        }
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+
+    }
+
+    /**
+     * This method is called when a key is pressed.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * @return - true iff the key press was accepted (i.e. the player is not frozen, the game is not locked and the
+     *           key presses queue is not full).
+     */
+    public boolean keyPressed(int slot) {
+        return keyPressed(slot, System.nanoTime());
+    }
+
+    /**
+     * This method is called when a key is pressed, with the time the input thread received the press (for tracing).
+     *
+     * @param slot         - the slot corresponding to the key pressed.
+     * @param pressedNanos - the System.nanoTime the key press was received at.
+     * @return - true iff the key press was accepted.
+     */
+    public boolean keyPressed(int slot, long pressedNanos) {
+        // TODO implement
+        if (gate.acceptsAll() || !isSleeping && !dealer.lockGame) { // a replayed press was accepted in the recording
+            synchronized(myKeyPresses) {
+                if (!myKeyPresses.offer(slot)) {
+                    env.metrics.pressDropped(id, Metrics.Drop.QUEUE_FULL);
+                    return false;
+                }
+                ClaimTrace trace = env.metrics.startTrace(id, slot, pressedNanos);
+                if (trace != null) {
+                    trace.stamp(ClaimTrace.Boundary.QUEUED);
+                    pressTraces.add(trace);
+                }
+                env.listener.keyPress(id, slot);
+                env.clock.signal(myKeyPresses);
+                return true;
+            }
+        }
+        env.metrics.pressDropped(id, isSleeping ? Metrics.Drop.FROZEN : Metrics.Drop.LOCKED);
+        return false;
+    }
+
+    public LinkedList<Integer> getSet() {
+        return currSet;
+    }
+
+    public synchronized void point() {
+        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+        score = score + 1;
+        env.ui.setScore(id, score);
+        //newCurrSet(); 
+        freezeTimer = env.config.pointFreezeMillis;
+        freezeUntil = env.clock.millis() + freezeTimer;
+        checked = true;
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName());
+
+    }
+
+    public synchronized void cancel() {
+        // TODO implement
+        checked = true;
+    }
+
+    /**
+     * Penalize a player and perform other related actions.
+     */
+    public synchronized void penalty() {
+        // TODO implement
+        freezeTimer = env.config.penaltyFreezeMillis;
+        freezeUntil = env.clock.millis() + freezeTimer;
+        checked = true;
+    }
+
+    /**
+     * @return - the time left of the player's freeze (0 if the player is not frozen).
+     */
+    long freezeLeft(long now) {
+        return Math.max(0, freezeUntil - now);
+    }
+
+    /**
+     * Restores the score and freeze of a checkpoint. Called before the player thread starts.
+     *
+     * @param freezeMillis - the time left of the player's freeze (rounded up to whole seconds, like all freezes).
+     */
+    synchronized void resume(int score, long freezeMillis) {
+        this.score = score;
+        env.ui.setScore(id, score);
+        if (freezeMillis > 0) {
+            freezeTimer = (freezeMillis + 999) / 1000 * 1000;
+            freezeUntil = env.clock.millis() + freezeTimer;
+            isSleeping = true;
+        }
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public boolean getChecked()
+    {
+        return checked;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package bguspl.set.ex;
+
+/**
+ * The points where the dealer and the player threads meet when they change the cards, place or remove tokens and
+ * check claims. A replay passes through them in the recorded order (see TraceGate); a game that is not replayed uses
+ * NONE, which never waits.
+ */
+interface ReplayGate {
+
+    /**
+     * The gate of a game that is not replayed.
+     */
+    ReplayGate NONE = new ReplayGate() {};
+
+    /**
+     * @return - true iff the players accept every key press (the replayed presses were accepted in the recording).
+     */
+    default boolean acceptsAll() {
+        return false;
+    }
+
+    /**
+     * Called by the dealer thread before it changes the cards on the table.
+     *
+     * @param changes - the number of changes made to the cards so far.
+     */
+    default void changingCards(int changes) {}
+
+    /**
+     * Called by the dealer thread after it changed the cards on the table.
+     *
+     * @param changes - the number of changes made to the cards so far, including this one.
+     */
+    default void cardsChanged(int changes) {}
+
+    /**
+     * Called by a player thread before it places or removes the token of the key press it took.
+     */
+    default void consuming(int player) {}
+
+    /**
+     * Called by a player thread after it placed or removed the token of the key press it took.
+     */
+    default void consumed(int player) {}
+
+    /**
+     * @return - true iff the dealer may check a claim before the next change to the cards (does not wait).
+     */
+    default boolean claimDue() {
+        return true;
+    }
+
+    /**
+     * Called by the dealer thread when a claim is due: waits until the claim to check next is queued.
+     */
+    default void awaitClaim() {}
+
+    /**
+     * Called by the dealer thread, holding the claims queue.
+     *
+     * @return - the player whose claim to check next (-1 for the first one queued).
+     */
+    default int nextClaim() {
+        return -1;
+    }
+
+    /**
+     * Releases the threads waiting in the gate (called when the game is terminated).
+     */
+    default void terminate() {}
+}
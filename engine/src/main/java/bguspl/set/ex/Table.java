@@ -0,0 +1,382 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.jfr.LockWaitEvent;
+import bguspl.set.jfr.TableCardsEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class contains the data that is visible to the player.
+ *
+ * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ */
+public class Table {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Mapping between a slot and the card placed in it (null if none).
+     */
+    protected final Integer[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (null if none).
+     */
+    protected final Integer[] cardToSlot; // slot per card (if any)
+    /**
+     * which players tokens are in every slot (null if none)
+     */
+    protected ArrayList<Player>[] tokens;
+
+    /**
+     * The number of changes made to the cards on the table so far (see changes), counted under the tokens lock by the
+     * dealer thread.
+     */
+    private volatile int changes;
+
+    /**
+     * The gate the dealer thread passes through when it changes the cards (see Dealer.replay).
+     */
+    ReplayGate gate = ReplayGate.NONE;
+
+    // protected Object[] arrayLock;
+    //public ReentrantLock lockTable = new ReentrantLock();
+
+    /**
+     * Constructor for testing.
+     *
+     * @param env        - the game environment objects.
+     * @param slotToCard - mapping between a slot and the card placed in it (null if
+     *                   none).
+     * @param cardToSlot - mapping between a card and the slot it is in (null if
+     *                   none).
+     */
+    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+
+        this.env = env;
+        this.slotToCard = slotToCard;
+        this.cardToSlot = cardToSlot;
+        tokens = new ArrayList[env.config.tableSize];
+        for (int i = 0; i < env.config.tableSize; i++) {
+            tokens[i] = new ArrayList<Player>();
+        }
+        // arrayLock = new Object[];
+
+    }
+
+    /**
+     * Constructor for actual usage.
+     *
+     * @param env - the game environment objects.
+     */
+    public Table(Env env) {
+
+        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+    }
+
+    /**
+     * This method prints all possible legal sets of cards that are currently on the
+     * table.
+     */
+    public void hints() {
+        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
+            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
+                    .collect(Collectors.toList());
+            int[][] features = env.util.cardsToFeatures(set);
+            System.out.println(
+                    sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
+        });
+    }
+
+    /**
+     * @return - the number of changes made to the cards on the table so far (each call of the methods that place or
+     *           remove cards is one change).
+     */
+    public int changes() {
+        return changes;
+    }
+
+    /**
+     * Count the number of cards currently on the table.
+     *
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        int cards = 0;
+        for (Integer card : slotToCard)
+            if (card != null)
+                ++cards;
+        return cards;
+    }
+
+    /**
+     * Places a card on the table in a grid slot.
+     * 
+     * @param card - the card id to place in the slot.
+     * @param slot - the slot in which the card should be placed.
+     *
+     * @post - the card placed is on the table, in the assigned slot.
+     */
+    public void placeCard(int card, int slot) {
+        TableCardsEvent event = new TableCardsEvent();
+        event.begin();
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
+        gate.changingCards(changes);
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) { // the players consume their key presses under the tokens lock
+            wait.acquired("tokens", -1);
+            long locked = System.nanoTime();
+            try {
+                cardToSlot[card] = slot;
+                slotToCard[slot] = card;
+                changes++;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+        env.ui.placeCard(card, slot);
+        gate.cardsChanged(changes);
+        event.finish("place", slot, card);
+    }
+
+    /**
+     * Removes a card from a grid slot on the table.
+     * 
+     * @param slot - the slot from which to remove the card.
+     */
+    public synchronized void removeCard(int slot) {
+        TableCardsEvent event = new TableCardsEvent();
+        event.begin();
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
+        gate.changingCards(changes);
+
+        // TODO implement
+        int cardToRemove;
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) {
+            wait.acquired("tokens", -1);
+            long locked = System.nanoTime();
+            try {
+                cardToRemove = slotToCard[slot];
+                cardToSlot[cardToRemove] = null;
+                slotToCard[slot] = null;
+                // remove all tokens from this card
+                while (!tokens[slot].isEmpty())
+                {
+                        Player p = tokens[slot].remove(0);
+                        synchronized (p.getSet()) {
+                            p.setCurrSet(slot);
+                        }
+                }
+                env.ui.removeTokens(slot);
+                env.ui.removeCard(slot);
+                changes++;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+        gate.cardsChanged(changes);
+        event.finish("remove", slot, cardToRemove);
+    }
+
+    /**
+     * Places several cards on the table at once, with a single user interface update.
+     *
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed (cards[i] in slots[i]).
+     *
+     * @post - the cards placed are on the table, in the assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        TableCardsEvent event = new TableCardsEvent();
+        event.begin();
+        try {
+            env.clock.sleep(env.config.tableDelayMillis * cards.length);
+        } catch (InterruptedException ignored) {
+        }
+        gate.changingCards(changes);
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) { // the players consume their key presses under the tokens lock
+            wait.acquired("tokens", -1);
+            long locked = System.nanoTime();
+            try {
+                for (int i = 0; i < cards.length; i++) {
+                    cardToSlot[cards[i]] = slots[i];
+                    slotToCard[slots[i]] = cards[i];
+                }
+                changes++;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+        env.ui.placeCards(cards, slots);
+        gate.cardsChanged(changes);
+        event.finish("place", slots, cards);
+    }
+
+    /**
+     * Removes all the cards (and tokens) from the table at once, with a single user interface update.
+     *
+     * @return - the ids of the removed cards.
+     */
+    public synchronized List<Integer> removeAllCards() {
+        TableCardsEvent event = new TableCardsEvent();
+        event.begin();
+        try {
+            env.clock.sleep(env.config.tableDelayMillis * countCards());
+        } catch (InterruptedException ignored) {
+        }
+        gate.changingCards(changes);
+        List<Integer> removed = new ArrayList<>();
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) {
+            wait.acquired("tokens", -1);
+            long locked = System.nanoTime();
+            try {
+                for (int slot = 0; slot < slotToCard.length; slot++) {
+                    if (slotToCard[slot] == null) continue;
+                    removed.add(slotToCard[slot]);
+                    cardToSlot[slotToCard[slot]] = null;
+                    slotToCard[slot] = null;
+                    clearTokens(slot);
+                }
+                env.ui.clearTable();
+                changes++;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+        gate.cardsChanged(changes);
+        event.finish("clear", removed);
+        return removed;
+    }
+
+    /**
+     * Replaces the cards (and removes the tokens) in several slots at once, with a single user interface update.
+     *
+     * @param slots - the slots whose cards should be replaced.
+     * @param cards - the new card ids (cards[i] in slots[i]; a negative id leaves the slot empty).
+     */
+    public synchronized void replaceCards(int[] slots, int[] cards) {
+        TableCardsEvent event = new TableCardsEvent();
+        event.begin();
+        try {
+            env.clock.sleep(env.config.tableDelayMillis * slots.length * 2);
+        } catch (InterruptedException ignored) {
+        }
+        gate.changingCards(changes);
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) {
+            wait.acquired("tokens", -1);
+            long locked = System.nanoTime();
+            try {
+                for (int i = 0; i < slots.length; i++) {
+                    int slot = slots[i];
+                    if (slotToCard[slot] != null) cardToSlot[slotToCard[slot]] = null;
+                    slotToCard[slot] = null;
+                    clearTokens(slot);
+                    if (cards[i] >= 0) {
+                        cardToSlot[cards[i]] = slot;
+                        slotToCard[slot] = cards[i];
+                    }
+                }
+                env.ui.replaceSlots(slots, cards);
+                changes++;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+        gate.cardsChanged(changes);
+        event.finish("replace", slots, cards);
+    }
+
+    /**
+     * Removes all the tokens from a slot (the caller must hold the tokens lock).
+     */
+    private void clearTokens(int slot) {
+        while (!tokens[slot].isEmpty()) {
+            Player p = tokens[slot].remove(0);
+            synchronized (p.getSet()) {
+                p.setCurrSet(slot);
+            }
+        }
+    }
+
+    /**
+     * Places a player token on a grid slot.
+     * 
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot on which to place the token.
+     */
+    public void placeToken(Player player, int slot) {
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) {
+            wait.acquired("tokens", player.id);
+            long locked = System.nanoTime();
+            try {
+                tokens[slot].add(player);
+                synchronized(player.getSet())
+                {
+                    player.currSet.add(slot);
+                }
+                env.ui.placeToken(player.id, slot);
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+    }
+
+    /**
+     * Removes a token of a player from a grid slot.
+     * 
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot from which to remove the token.
+     * @return - true iff a token was successfully removed.
+     */
+    public boolean removeToken(Player player, int slot) {
+        // TODO implement
+        LockWaitEvent wait = new LockWaitEvent();
+        wait.begin();
+        synchronized (tokens) {
+            wait.acquired("tokens", player.id);
+            long locked = System.nanoTime();
+            try {
+                if (tokens[slot].contains(player)) {
+                    tokens[slot].remove(player);
+                    synchronized(player.getSet())
+                    {
+                        player.setCurrSet(slot);
+                    }
+                    env.ui.removeToken(player.id, slot);
+                    return true;
+                }
+                return false;
+            } finally {
+                env.metrics.tableLockHeld(System.nanoTime() - locked);
+            }
+        }
+    }
+
+}
\ No newline at end of file
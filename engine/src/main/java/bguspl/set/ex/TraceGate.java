@@ -0,0 +1,121 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.InputTrace;
+import java.util.Queue;
+
+/**
+ * The gate of a replayed game: it keeps the orders recorded in the trace (see InputTrace). The dealer changes the
+ * cards only once every player placed or removed the tokens of the key presses it took before the change in the
+ * recording, a player places or removes a token only once the cards changed as many times as when it did in the
+ * recording, and the dealer checks the recorded claims in order, between the same changes.
+ * <p>
+ * The waits count changes and key presses, not time, so the replay keeps the orders whatever the clock. A replay that
+ * diverged from the recording may wait forever, until the game is terminated (the replay ends the game when the
+ * recorded game ended, see TraceReplayer).
+ */
+class TraceGate implements ReplayGate {
+
+    private final InputTrace trace;
+    private final Clock clock;
+
+    /**
+     * The claims queue of the dealer (the monitor signalled when a claim is queued).
+     */
+    private final Queue<Player> claims;
+
+    /**
+     * The key presses each player consumed so far, and the changes made to the cards so far (guarded by this).
+     */
+    private final int[] consumed;
+    private int changes;
+
+    private volatile boolean terminated;
+
+    /**
+     * The claims taken by the dealer so far (by the dealer thread only).
+     */
+    private int checks;
+
+    TraceGate(InputTrace trace, Clock clock, int players, Queue<Player> claims) {
+        this.trace = trace;
+        this.clock = clock;
+        this.claims = claims;
+        this.consumed = new int[players];
+    }
+
+    @Override
+    public boolean acceptsAll() {
+        return true;
+    }
+
+    @Override
+    public synchronized void changingCards(int changes) {
+        for (int player = 0; player < consumed.length; player++)
+            while (consumed[player] < trace.takesBefore(player, changes) && !terminated) await(this);
+    }
+
+    @Override
+    public synchronized void cardsChanged(int changes) {
+        this.changes = changes;
+        clock.signal(this);
+    }
+
+    @Override
+    public synchronized void consuming(int player) {
+        while (changes < trace.tableChanges(player, consumed[player]) && !terminated) await(this);
+    }
+
+    @Override
+    public synchronized void consumed(int player) {
+        consumed[player]++;
+        clock.signal(this);
+    }
+
+    @Override
+    public boolean claimDue() {
+        int changes;
+        synchronized (this) {
+            changes = this.changes;
+        }
+        return checks < trace.verdicts() && trace.verdictTableChanges(checks) <= changes;
+    }
+
+    @Override
+    public void awaitClaim() {
+        if (checks >= trace.verdicts()) return;
+        int player = trace.verdictPlayer(checks);
+        synchronized (claims) {
+            while (!queued(player) && !terminated) await(claims);
+        }
+    }
+
+    @Override
+    public int nextClaim() {
+        return checks < trace.verdicts() ? trace.verdictPlayer(checks++) : -1;
+    }
+
+    @Override
+    public void terminate() {
+        synchronized (this) {
+            terminated = true;
+            clock.signal(this);
+        }
+        synchronized (claims) {
+            clock.signal(claims);
+        }
+    }
+
+    private boolean queued(int player) {
+        for (Player p : claims)
+            if (p.id == player) return true;
+        return false;
+    }
+
+    private void await(Object monitor) {
+        try {
+            clock.await(monitor, 0);
+        } catch (InterruptedException ignored) { // the player threads are interrupted after terminate
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package bguspl.set.host;
+
+import bguspl.set.Clock;
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameThreads;
+import bguspl.set.KeyInput;
+import bguspl.set.RandomSource;
+import bguspl.set.SimulatedClock;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import bguspl.set.loop.EventLoopGame;
+import bguspl.set.metrics.Metrics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A game hosted by a GameHost: its own Env (clock, random source, metrics) and game entities, with its dealer,
+ * player and computer player loops running on the host's shared threads (or, with config.eventLoop, its event loop
+ * on a single shared thread).
+ */
+public class Game {
+
+    /**
+     * The lifecycle of a hosted game.
+     */
+    public enum State {
+        /** Waiting for the host to have enough free threads. */
+        WAITING,
+        /** Being played. */
+        RUNNING,
+        /** Played to the end. */
+        FINISHED,
+        /** Stopped before the end (see stop). */
+        STOPPED
+    }
+
+    public final int id;
+    public final Config config;
+    private final long seed;
+    private final UserInterface ui;
+    private final GameHost host;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile State state = State.WAITING;
+    private volatile boolean stopRequested;
+    private Metrics metrics;
+    private Dealer dealer;
+    private Player[] players;
+    private EventLoopGame loopGame;
+    private Clock clock;
+
+    Game(GameHost host, int id, Config config, long seed, UserInterface ui) {
+        this.host = host;
+        this.id = id;
+        this.config = config;
+        this.seed = seed;
+        this.ui = ui;
+    }
+
+    /**
+     * @return - the number of threads the game holds while it runs: the dealer, a thread per player and one more per
+     * computer player (or only the event loop).
+     */
+    int threadsNeeded() {
+        return config.eventLoop ? 1 : 1 + config.players + (config.players - config.humanPlayers);
+    }
+
+    /**
+     * Creates the game entities and starts the dealer (called by the host when the game is admitted).
+     */
+    synchronized void start(GameThreads shared, Logger logger) {
+        GameThreads threads = (task, name) -> shared.start(task, "game-" + id + "-" + name);
+        clock = config.simulatedTime ? new SimulatedClock() : Clock.SYSTEM;
+        metrics = new Metrics(config.players);
+        Env env = new Env(logger, config, ui, new UtilImpl(config), metrics, new RandomSource(seed), clock, metrics, threads);
+        state = State.RUNNING;
+        if (config.eventLoop) {
+            loopGame = new EventLoopGame(env, true);
+            clock.starting();
+            threads.start(this::run, "loop");
+            return;
+        }
+        Table table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        clock.starting();
+        threads.start(this::run, "dealer");
+    }
+
+    private void run() {
+        try {
+            if (loopGame != null) loopGame.run();
+            else dealer.run();
+        } finally {
+            if (clock instanceof SimulatedClock) ((SimulatedClock) clock).close();
+            state = stopRequested ? State.STOPPED : State.FINISHED;
+            host.finished(this);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Stops the game: a waiting game is never started, and a running game is terminated (the call waits for its
+     * player threads to finish).
+     */
+    public void stop() {
+        stopRequested = true;
+        if (host.cancel(this)) { // never started
+            state = State.STOPPED;
+            done.countDown();
+            return;
+        }
+        Dealer running;
+        synchronized (this) { // started by the host before it could cancel, so the game is set
+            if (loopGame != null) loopGame.terminate();
+            running = dealer;
+        }
+        if (running != null) running.terminate(); // outside the lock, it waits for the player threads
+    }
+
+    /**
+     * Waits for the game to finish or stop.
+     *
+     * @return - true iff the game is over.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * @return - where to send the key presses of the (human) players, or null if the game has not started yet.
+     */
+    public synchronized KeyInput input() {
+        if (loopGame != null) return loopGame;
+        return players == null ? null : KeyInput.of(players);
+    }
+
+    /**
+     * @return - the scores of the players (all zero if the game has not started yet).
+     */
+    public synchronized int[] scores() {
+        if (loopGame != null) return loopGame.scores();
+        int[] scores = new int[config.players];
+        if (players != null)
+            for (int i = 0; i < scores.length; i++) scores[i] = players[i].score();
+        return scores;
+    }
+
+    /**
+     * @return - the metrics of the game, or null if the game has not started yet.
+     */
+    public synchronized Metrics metrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,194 @@
+package bguspl.set.host;
+
+import bguspl.set.AsyncLogHandler;
+import bguspl.set.Config;
+import bguspl.set.GameThreads;
+import bguspl.set.NullUserInterface;
+import bguspl.set.UserInterface;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many games in one process, on one shared, bounded pool of threads.
+ * <p>
+ * The game loops block (on the table, the claims queue and the clock), so a running game holds its pool threads from
+ * start to end (see Game.threadsNeeded). The host admits a game only when that many threads are free, and queues it
+ * otherwise (first come, first served), so the pool is never oversubscribed and a game never waits for a thread in the
+ * middle of play. The threads are reused from game to game, and are created with a small stack to keep the memory
+ * footprint of a game low.
+ * <p>
+ * A game with config.eventLoop holds a single thread. A game of the threaded engine holds 1 + players + computer
+ * players threads (9 for 4 computer players), so a pool of n threads runs at most n / 9 such games at once, and the
+ * rest wait: the threaded engine is hosted for comparison and checks, the event loop is the engine to host many games
+ * with.
+ */
+public class GameHost implements AutoCloseable {
+
+    /**
+     * The stack size of the pool threads (the game loops have shallow stacks).
+     */
+    static final long STACK_SIZE = 256 * 1024;
+
+    private final Logger logger;
+    private final int capacity;
+    private final ThreadPoolExecutor pool;
+    private final GameThreads threads;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final ArrayDeque<Game> waiting = new ArrayDeque<>(); // guarded by this
+    private final List<Game> running = new ArrayList<>(); // guarded by this
+    private int freeThreads; // guarded by this
+    private boolean closed; // guarded by this
+
+    /**
+     * @param threads - the number of threads in the pool (the bound on the threads of all the running games).
+     * @param logger  - the logger shared by the games.
+     */
+    public GameHost(int threads, Logger logger) {
+        this.logger = logger;
+        this.capacity = threads;
+        this.freeThreads = threads;
+        AtomicInteger count = new AtomicInteger();
+        // the queue only holds a task for the moment a finished game's thread takes to return to the pool
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(null, task, "game-host-" + count.incrementAndGet(), STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        this.threads = GameThreads.pooled(pool);
+    }
+
+    /**
+     * Submits a game with the random seed of the configuration.
+     */
+    public Game submit(Config config, UserInterface ui) {
+        return submit(config, ui, config.randomSeed);
+    }
+
+    /**
+     * Submits a game: it starts as soon as the host has enough free threads.
+     *
+     * @param config - the game configuration.
+     * @param ui     - the user interface of the game.
+     * @param seed   - the seed of the game's random choices.
+     * @return - the game.
+     * @throws IllegalArgumentException - if the game needs more threads than the host has.
+     * @throws IllegalStateException    - if the host is closed.
+     */
+    public synchronized Game submit(Config config, UserInterface ui, long seed) {
+        if (closed) throw new IllegalStateException("the game host is closed");
+        Game game = new Game(this, ids.incrementAndGet(), config, seed, ui);
+        if (game.threadsNeeded() > capacity)
+            throw new IllegalArgumentException("a game of " + config.players + " players needs " + game.threadsNeeded()
+                    + " threads, the host has " + capacity);
+        waiting.add(game);
+        admit();
+        return game;
+    }
+
+    /**
+     * Starts the waiting games in order, as long as there are enough free threads for the next one.
+     */
+    private void admit() {
+        while (!waiting.isEmpty() && waiting.peek().threadsNeeded() <= freeThreads) {
+            Game game = waiting.poll();
+            freeThreads -= game.threadsNeeded();
+            running.add(game);
+            game.start(threads, logger);
+        }
+    }
+
+    /**
+     * Called when a running game is over, to release its threads.
+     */
+    synchronized void finished(Game game) {
+        if (running.remove(game)) freeThreads += game.threadsNeeded();
+        if (!closed) admit();
+    }
+
+    /**
+     * Removes a waiting game from the queue.
+     *
+     * @return - true iff the game was still waiting.
+     */
+    synchronized boolean cancel(Game game) {
+        return waiting.remove(game);
+    }
+
+    /**
+     * @return - the games that are waiting to start, in order.
+     */
+    public synchronized List<Game> waitingGames() {
+        return new ArrayList<>(waiting);
+    }
+
+    /**
+     * @return - the games that are running.
+     */
+    public synchronized List<Game> runningGames() {
+        return new ArrayList<>(running);
+    }
+
+    /**
+     * @return - the number of pool threads not held by a running game.
+     */
+    public synchronized int freeThreads() {
+        return freeThreads;
+    }
+
+    /**
+     * Stops all the games (waiting and running) and shuts the pool down.
+     */
+    @Override
+    public void close() {
+        List<Game> games;
+        synchronized (this) {
+            closed = true;
+            games = new ArrayList<>(waiting);
+            games.addAll(running);
+        }
+        for (Game game : games) game.stop();
+        pool.shutdown();
+    }
+
+    /**
+     * Plays many games at once with computer players and no user interface, and prints the results.
+     * Arguments (key=value): games (default 100) and threads (default 16 per core), the game settings are read from
+     * config.properties.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = 100;
+        int threads = 16 * Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue[0].equals("games")) games = Integer.parseInt(keyValue[1]);
+            else if (keyValue[0].equals("threads")) threads = Integer.parseInt(keyValue[1]);
+            else throw new IllegalArgumentException("unknown argument " + arg);
+        }
+        Logger logger = Logger.getLogger("bguspl.set.host");
+        Config config = new Config(logger, "config.properties");
+        AsyncLogHandler.install(logger, config);
+        logger.setLevel(Level.WARNING); // hundreds of games log too much to the console
+
+        long start = System.nanoTime();
+        List<Game> submitted = new ArrayList<>();
+        try (GameHost host = new GameHost(threads, logger)) {
+            for (int i = 0; i < games; i++) submitted.add(host.submit(config, new NullUserInterface(), config.randomSeed + i));
+            System.out.printf("%d games submitted to %d threads, %d running%n", games, threads, host.runningGames().size());
+            for (Game game : submitted) {
+                game.await(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                System.out.printf("game %d %s: scores %s%n", game.id, game.state(), Arrays.toString(game.scores()));
+            }
+        }
+        System.out.printf("%d games in %.1f s%n", games, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,28 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The dealer tested the cards of a claim (and replaced them if they are a legal set).
+ */
+@Name("bguspl.set.CheckSet")
+@Label("Check Set")
+@Category({"SET Game", "Dealer"})
+@Description("The dealer tested the cards of a claim")
+@StackTrace(false)
+public class CheckSetEvent extends Event {
+
+    @Label("Player")
+    public int player;
+
+    @Label("Legal")
+    public boolean legal;
+
+    @Label("Cards")
+    public String cards;
+}
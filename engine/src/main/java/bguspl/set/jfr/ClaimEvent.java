@@ -0,0 +1,28 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A player submitted a claim to the dealer (its duration is the wait for the claims queue lock).
+ */
+@Name("bguspl.set.Claim")
+@Label("Claim")
+@Category({"SET Game", "Dealer"})
+@Description("A player submitted a claim to the dealer")
+@StackTrace(false)
+public class ClaimEvent extends Event {
+
+    @Label("Player")
+    public int player;
+
+    @Label("Slots")
+    public String slots;
+
+    @Label("Cards")
+    public String cards;
+}
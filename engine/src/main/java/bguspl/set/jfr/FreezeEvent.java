@@ -0,0 +1,27 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A player was frozen (the event starts and ends with the freeze).
+ */
+@Name("bguspl.set.Freeze")
+@Label("Player Freeze")
+@Category({"SET Game", "Player"})
+@Description("A player was frozen after a point or a penalty")
+@StackTrace(false)
+public class FreezeEvent extends Event {
+
+    @Label("Player")
+    public int player;
+
+    @Label("Freeze Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long millis;
+}
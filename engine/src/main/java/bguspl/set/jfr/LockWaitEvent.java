@@ -0,0 +1,41 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A thread waited to enter one of the game locks (the table tokens or the claims queue).
+ */
+@Name("bguspl.set.LockWait")
+@Label("Game Lock Wait")
+@Category({"SET Game", "Locks"})
+@Description("A thread waited to enter the table tokens lock or the claims queue lock")
+@Threshold("1 ms")
+@StackTrace(false)
+public class LockWaitEvent extends Event {
+
+    @Label("Lock")
+    @Description("tokens or claims")
+    public String lock;
+
+    @Label("Player")
+    @Description("The player the operation is for (-1 for the dealer)")
+    public int player;
+
+    /**
+     * Ends the wait and commits it if it is enabled and above the threshold (call inside the lock).
+     */
+    public void acquired(String lock, int player) {
+        end();
+        if (shouldCommit()) {
+            this.lock = lock;
+            this.player = player;
+            commit();
+        }
+    }
+}
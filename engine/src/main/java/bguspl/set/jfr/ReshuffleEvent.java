@@ -0,0 +1,25 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The dealer returned all the cards on the table to the deck.
+ */
+@Name("bguspl.set.Reshuffle")
+@Label("Reshuffle")
+@Category({"SET Game", "Dealer"})
+@Description("The dealer returned all the cards on the table to the deck")
+@StackTrace(false)
+public class ReshuffleEvent extends Event {
+
+    @Label("Cards Returned")
+    public int cards;
+
+    @Label("Deck Size")
+    public int deck;
+}
@@ -0,0 +1,65 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cards were placed on or removed from the table (its duration includes the table delay).
+ */
+@Name("bguspl.set.TableCards")
+@Label("Table Cards")
+@Category({"SET Game", "Table"})
+@Description("Cards were placed on or removed from the table")
+@StackTrace(false)
+public class TableCardsEvent extends Event {
+
+    @Label("Operation")
+    @Description("place, remove, replace or clear")
+    public String operation;
+
+    @Label("Slots")
+    @Description("The slots of the operation (* for the whole table)")
+    public String slots;
+
+    @Label("Cards")
+    @Description("The cards placed (place, replace) or removed (remove, clear)")
+    public String cards;
+
+    /**
+     * Ends the operation on a single slot and commits it if it is enabled.
+     */
+    public void finish(String operation, int slot, int card) {
+        end();
+        if (shouldCommit()) commit(operation, "[" + slot + "]", "[" + card + "]");
+    }
+
+    /**
+     * Ends the operation on several slots and commits it if it is enabled.
+     */
+    public void finish(String operation, int[] slots, int[] cards) {
+        end();
+        if (shouldCommit()) commit(operation, Arrays.toString(slots), Arrays.toString(cards));
+    }
+
+    /**
+     * Ends the removal of the given cards from the whole table and commits it if it is enabled.
+     */
+    public void finish(String operation, List<Integer> cards) {
+        end();
+        if (shouldCommit()) commit(operation, "*", cards.toString());
+    }
+
+    private void commit(String operation, String slots, String cards) {
+        this.operation = operation;
+        this.slots = slots;
+        this.cards = cards;
+        commit();
+    }
+}
@@ -0,0 +1,32 @@
+package bguspl.set.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The dealer checked a claim (its duration is the whole check, including the card replacement of a legal set).
+ */
+@Name("bguspl.set.Verdict")
+@Label("Verdict")
+@Category({"SET Game", "Dealer"})
+@Description("The dealer checked a claim")
+@StackTrace(false)
+public class VerdictEvent extends Event {
+
+    @Label("Player")
+    public int player;
+
+    @Label("Verdict")
+    @Description("point, penalty or cancelled")
+    public String verdict;
+
+    @Label("Slots")
+    public String slots;
+
+    @Label("Cards")
+    public String cards;
+}
@@ -0,0 +1,384 @@
+package bguspl.set.loop;
+
+import bguspl.set.Env;
+import bguspl.set.GameListener;
+import bguspl.set.KeyInput;
+import bguspl.set.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The event loop engine: an alternative to the Dealer, Table and Player threads, where the whole game state (deck,
+ * table, tokens, scores, freezes and countdown) is owned by a single thread and changed without locks.
+ * <p>
+ * Key presses from other threads (keyboard, replay, network) are posted to a mailbox and processed in order; the
+ * countdown, freezes and computer players are timers of the loop; and a claim is checked as soon as its last token is
+ * placed, so the verdict is given in the same step. The rules and the dealer's random choices are the same as in the
+ * threaded engine, so the same seed and the same key presses give the same game.
+ */
+public class EventLoopGame implements Runnable, KeyInput {
+
+    private static final int EMPTY = -1;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The random stream used to draw cards and slots (the same stream as the Dealer's).
+     */
+    private final SplittableRandom random;
+
+    /**
+     * The random streams of the computer players (null for a human player).
+     */
+    private final SplittableRandom[] computers;
+    private final boolean anyComputers;
+
+    // the game state, owned by the loop thread
+
+    private final List<Integer> deck;
+    private final int[] slotToCard; // EMPTY if none
+    private final int[] cardToSlot; // EMPTY if none
+    private final int[][] tokens; // [player][i] = the slot of the player's i-th token, in the order placed
+    private final int[] tokenCount;
+    private final int[] scores;
+    private final long[] freezeEnd; // 0 if not frozen
+    private final long[] nextFreezeUpdate;
+    private long reshuffleTime;
+    private long nextTick;
+    private long nextComputerPress;
+
+    // the hand-off from the input threads
+
+    /**
+     * The posted key presses (player << 16 | slot), guarded by itself.
+     */
+    private final ArrayDeque<Integer> mailbox = new ArrayDeque<>();
+
+    /**
+     * The number of posted key presses per player that the loop has not processed yet (at most featureSize, like the
+     * key presses queue of a Player).
+     */
+    private final AtomicIntegerArray pending;
+
+    /**
+     * 1 iff the player is frozen (written by the loop, read by the input threads).
+     */
+    private final AtomicIntegerArray frozen;
+
+    /**
+     * True while the cards are dealt or collected (key presses are not accepted, like Dealer.lockGame).
+     */
+    private volatile boolean locked = true;
+
+    private volatile boolean terminate;
+
+    /**
+     * @param env       - the game environment object.
+     * @param computers - whether the computer players (after the human players) are played by the loop (false when the
+     *                  input of all the players comes from outside, e.g. a replay).
+     */
+    public EventLoopGame(Env env, boolean computers) {
+        this.env = env;
+        int players = env.config.players;
+        random = env.random.stream("dealer");
+        this.computers = new SplittableRandom[players];
+        if (computers)
+            for (int i = env.config.humanPlayers; i < players; i++)
+                this.computers[i] = env.random.stream("computer-" + i);
+        anyComputers = computers && players > env.config.humanPlayers;
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        slotToCard = new int[env.config.tableSize];
+        cardToSlot = new int[env.config.deckSize];
+        Arrays.fill(slotToCard, EMPTY);
+        Arrays.fill(cardToSlot, EMPTY);
+        tokens = new int[players][env.config.featureSize];
+        tokenCount = new int[players];
+        scores = new int[players];
+        freezeEnd = new long[players];
+        nextFreezeUpdate = new long[players];
+        pending = new AtomicIntegerArray(players);
+        frozen = new AtomicIntegerArray(players);
+    }
+
+    /**
+     * The loop thread starts here.
+     */
+    @Override
+    public void run() {
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        env.clock.register();
+        while (!terminate && env.util.findSets(deck, 1).size() > 0) {
+            placeAllCards();
+            resetCountdown();
+            locked = false;
+            while (!terminate && env.clock.millis() < reshuffleTime) {
+                long now = env.clock.millis();
+                updateFreezes(now);
+                if (now >= nextTick) tick(now);
+                if (now >= nextComputerPress) pressComputers(now);
+                processMailbox();
+                awaitNextEvent();
+            }
+            locked = true;
+            removeAllCards();
+            if (!terminate) env.listener.reshuffle();
+        }
+        announceWinners();
+        env.clock.unregister();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Called when the game should be terminated due to an external event.
+     */
+    public void terminate() {
+        terminate = true;
+        synchronized (mailbox) {
+            env.clock.signal(mailbox);
+        }
+    }
+
+    // input
+
+    /**
+     * Posts a key press to the loop (called by the input threads).
+     */
+    @Override
+    public boolean keyPressed(int player, int slot, long pressedNanos) {
+        if (locked || frozen.get(player) == 1) {
+            env.metrics.pressDropped(player, locked ? Metrics.Drop.LOCKED : Metrics.Drop.FROZEN);
+            return false;
+        }
+        if (pending.incrementAndGet(player) > env.config.featureSize) {
+            pending.decrementAndGet(player);
+            env.metrics.pressDropped(player, Metrics.Drop.QUEUE_FULL);
+            return false;
+        }
+        synchronized (mailbox) {
+            mailbox.add(player << 16 | slot);
+            env.clock.signal(mailbox);
+        }
+        return true;
+    }
+
+    private void processMailbox() {
+        while (!terminate) {
+            int press;
+            synchronized (mailbox) {
+                if (mailbox.isEmpty()) return;
+                press = mailbox.poll();
+            }
+            int player = press >>> 16;
+            pending.decrementAndGet(player);
+            press(player, press & 0xFFFF);
+        }
+    }
+
+    private void pressComputers(long now) {
+        for (int player = 0; player < computers.length; player++)
+            if (computers[player] != null && freezeEnd[player] == 0)
+                press(player, computers[player].nextInt(env.config.playerKeys(player).length));
+        nextComputerPress = now + Math.max(1, env.config.computerDelayMillis); // a timer of the loop
+    }
+
+    /**
+     * Processes a key press: toggles the player's token on the slot, and checks the claim when its last token is placed.
+     */
+    private void press(int player, int slot) {
+        if (freezeEnd[player] != 0) { // frozen since the press was posted
+            env.metrics.pressDropped(player, Metrics.Drop.FROZEN);
+            return;
+        }
+        env.listener.keyPress(player, slot);
+        if (slotToCard[slot] == EMPTY) return;
+        if (removeToken(player, slot)) {
+            env.ui.removeToken(player, slot);
+            return;
+        }
+        if (tokenCount[player] == env.config.featureSize) return; // cant put more tokens
+        tokens[player][tokenCount[player]++] = slot;
+        env.ui.placeToken(player, slot);
+        if (tokenCount[player] == env.config.featureSize) checkClaim(player);
+    }
+
+    /**
+     * @return - true iff the player had a token on the slot (and it was removed).
+     */
+    private boolean removeToken(int player, int slot) {
+        int[] placed = tokens[player];
+        for (int i = 0; i < tokenCount[player]; i++)
+            if (placed[i] == slot) {
+                System.arraycopy(placed, i + 1, placed, i, tokenCount[player] - i - 1);
+                tokenCount[player]--;
+                return true;
+            }
+        return false;
+    }
+
+    private void checkClaim(int player) {
+        int[] slots = Arrays.copyOf(tokens[player], tokenCount[player]);
+        env.listener.claim(player, slots);
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) cards[i] = slotToCard[slots[i]];
+        boolean legal = env.util.testSet(cards);
+        if (legal) {
+            locked = true;
+            replaceCards(slots);
+            resetCountdown();
+            locked = false;
+        }
+        env.listener.verdict(player, legal ? GameListener.VERDICT_POINT : GameListener.VERDICT_PENALTY);
+        if (legal) {
+            env.ui.setScore(player, ++scores[player]);
+            freeze(player, env.config.pointFreezeMillis);
+        } else {
+            freeze(player, env.config.penaltyFreezeMillis);
+        }
+    }
+
+    // timers
+
+    private void freeze(int player, long millis) {
+        long seconds = millis / 1000; // the player thread freezes for whole seconds
+        if (seconds <= 0) return;
+        long now = env.clock.millis();
+        freezeEnd[player] = now + seconds * 1000;
+        nextFreezeUpdate[player] = now;
+        frozen.set(player, 1);
+        updateFreezes(now);
+    }
+
+    private void updateFreezes(long now) {
+        for (int player = 0; player < freezeEnd.length; player++) {
+            if (freezeEnd[player] == 0 || now < nextFreezeUpdate[player]) continue;
+            long remaining = freezeEnd[player] - now;
+            if (remaining <= 0) {
+                env.ui.setFreeze(player, 0);
+                freezeEnd[player] = 0;
+                frozen.set(player, 0);
+            } else {
+                long seconds = (remaining + 999) / 1000;
+                env.ui.setFreeze(player, seconds * 1000);
+                nextFreezeUpdate[player] = freezeEnd[player] - (seconds - 1) * 1000;
+            }
+        }
+    }
+
+    private void resetCountdown() {
+        long now = env.clock.millis();
+        reshuffleTime = now + env.config.turnTimeoutMillis;
+        env.ui.setCountdown(env.config.turnTimeoutMillis, false);
+        nextTick = now;
+    }
+
+    private void tick(long now) {
+        long delta = reshuffleTime - now;
+        env.ui.setCountdown(delta, delta <= 5000);
+        nextTick = now + (delta <= env.config.turnTimeoutWarningMillis ? 10 : 1000);
+    }
+
+    /**
+     * Waits for a key press or for the next timer, whichever comes first.
+     */
+    private void awaitNextEvent() {
+        long wake = Math.min(reshuffleTime, nextTick);
+        if (anyComputers) wake = Math.min(wake, nextComputerPress);
+        for (int player = 0; player < freezeEnd.length; player++)
+            if (freezeEnd[player] != 0) wake = Math.min(wake, nextFreezeUpdate[player]);
+        synchronized (mailbox) {
+            long delay = wake - env.clock.millis();
+            if (mailbox.isEmpty() && !terminate && delay > 0) {
+                try {
+                    env.clock.await(mailbox, delay);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    // the table (the same draws as the Dealer's, so a seed deals the same cards)
+
+    private void placeAllCards() {
+        List<Integer> free = IntStream.range(0, env.config.tableSize).boxed().collect(Collectors.toList());
+        int count = Math.min(env.config.tableSize, deck.size());
+        int[] cards = new int[count];
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            cards[i] = deck.remove(random.nextInt(deck.size()));
+            slots[i] = free.remove(random.nextInt(free.size()));
+        }
+        sleep(env.config.tableDelayMillis * count);
+        for (int i = 0; i < count; i++) {
+            cardToSlot[cards[i]] = slots[i];
+            slotToCard[slots[i]] = cards[i];
+        }
+        env.ui.placeCards(cards, slots);
+        if (env.config.hints) hints();
+    }
+
+    private void replaceCards(int[] slots) {
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++)
+            cards[i] = deck.isEmpty() ? EMPTY : deck.remove(random.nextInt(deck.size()));
+        sleep(env.config.tableDelayMillis * slots.length * 2);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            if (slotToCard[slot] != EMPTY) cardToSlot[slotToCard[slot]] = EMPTY;
+            slotToCard[slot] = cards[i];
+            if (cards[i] != EMPTY) cardToSlot[cards[i]] = slot;
+            for (int player = 0; player < tokens.length; player++) removeToken(player, slot);
+        }
+        env.ui.replaceSlots(slots, cards);
+        if (env.config.hints) hints();
+    }
+
+    private void removeAllCards() {
+        int count = 0;
+        for (int card : slotToCard) if (card != EMPTY) count++;
+        sleep(env.config.tableDelayMillis * count);
+        for (int slot = 0; slot < slotToCard.length; slot++) {
+            if (slotToCard[slot] == EMPTY) continue;
+            deck.add(slotToCard[slot]);
+            cardToSlot[slotToCard[slot]] = EMPTY;
+            slotToCard[slot] = EMPTY;
+        }
+        Arrays.fill(tokenCount, 0);
+        env.ui.clearTable();
+    }
+
+    private void hints() {
+        List<Integer> cards = Arrays.stream(slotToCard).filter(card -> card != EMPTY).boxed().collect(Collectors.toList());
+        env.util.findSets(cards, Integer.MAX_VALUE).forEach(set -> System.out.println("Hint: Set found: slots: "
+                + Arrays.stream(set).map(card -> cardToSlot[card]).sorted().boxed().collect(Collectors.toList())
+                + " features: " + Arrays.deepToString(env.util.cardsToFeatures(set))));
+    }
+
+    private void sleep(long millis) {
+        try {
+            env.clock.sleep(millis);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private void announceWinners() {
+        int max = Arrays.stream(scores).max().orElse(0);
+        env.ui.announceWinner(IntStream.range(0, scores.length).filter(player -> scores[player] == max).toArray());
+    }
+
+    /**
+     * @return - the scores of the players (read by other threads after the game).
+     */
+    public int[] scores() {
+        return scores.clone();
+    }
+}
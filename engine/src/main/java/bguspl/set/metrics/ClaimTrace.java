@@ -0,0 +1,112 @@
+package bguspl.set.metrics;
+
+import bguspl.set.GameListener;
+
+import java.util.Locale;
+
+/**
+ * The trace context of a key press, and of the claim it completes (if it is the last token of a claim): a monotonic
+ * (System.nanoTime) timestamp at every stage boundary on the way from the key press to the verdict.
+ * <p>
+ * A trace is written by one thread at a time (the input thread, then the player thread, then the dealer thread), and
+ * the hand-offs between them are synchronized, so the stamps need no further synchronization.
+ */
+public final class ClaimTrace {
+
+    /**
+     * The stage boundaries, in order.
+     */
+    public enum Boundary {
+        /** The key was pressed (received by the input thread: the EDT or the computer player thread). */
+        PRESSED,
+        /** The press was added to the player's key presses queue. */
+        QUEUED,
+        /** The player thread took the press from its queue. */
+        TAKEN,
+        /** The token was placed on the table (or removed from it). */
+        PLACED,
+        /** The claim was added to the dealer's claims queue. */
+        SUBMITTED,
+        /** The dealer took the claim from its queue. */
+        DEQUEUED,
+        /** The dealer tested the cards of the claim. */
+        CHECKED,
+        /** The cards of a legal set were replaced and the verdict was given. */
+        DONE
+    }
+
+    /**
+     * The names of the stages between two consecutive boundaries (STAGES[i] is from boundary i to boundary i + 1).
+     */
+    public static final String[] STAGES = {"input", "handoff", "token", "submit", "queue", "check", "replace"};
+
+    private static final Boundary[] BOUNDARIES = Boundary.values();
+
+    /**
+     * The verdict of a trace that did not complete a claim.
+     */
+    static final int NO_VERDICT = Integer.MIN_VALUE;
+
+    public final int player;
+    public final int slot;
+    private final long[] stamps = new long[BOUNDARIES.length];
+    private int verdict = NO_VERDICT;
+
+    ClaimTrace(int player, int slot, long pressedNanos) {
+        this.player = player;
+        this.slot = slot;
+        stamps[Boundary.PRESSED.ordinal()] = pressedNanos;
+    }
+
+    /**
+     * Stamps a stage boundary with the current time.
+     */
+    public void stamp(Boundary boundary) {
+        stamps[boundary.ordinal()] = System.nanoTime();
+    }
+
+    void verdict(int verdict) {
+        this.verdict = verdict;
+    }
+
+    boolean isClaim() {
+        return verdict != NO_VERDICT;
+    }
+
+    /**
+     * @return - the duration of a stage in nanoseconds, or -1 if the trace did not go through it.
+     */
+    long stageNanos(int stage) {
+        long from = stamps[stage], to = stamps[stage + 1];
+        return from == 0 || to == 0 ? -1 : to - from;
+    }
+
+    /**
+     * @return - the time from the key press to the last stamped boundary, in nanoseconds.
+     */
+    long totalNanos() {
+        for (int i = stamps.length - 1; i > 0; i--)
+            if (stamps[i] != 0) return stamps[i] - stamps[0];
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder().append("player ").append(player).append(" slot ").append(slot);
+        if (isClaim()) out.append(' ').append(verdictName(verdict));
+        out.append(String.format(Locale.ROOT, " %.3f ms:", totalNanos() / 1e6));
+        for (int i = 0; i < STAGES.length; i++) {
+            long nanos = stageNanos(i);
+            if (nanos >= 0) out.append(String.format(Locale.ROOT, " %s %.3f", STAGES[i], nanos / 1e6));
+        }
+        return out.toString();
+    }
+
+    private static String verdictName(int verdict) {
+        switch (verdict) {
+            case GameListener.VERDICT_POINT: return "point";
+            case GameListener.VERDICT_PENALTY: return "penalty";
+            default: return "cancelled";
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package bguspl.set.metrics;
+
+import bguspl.set.UserInterface;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the user interface calls by method and forwards them to the next user interface.
+ */
+class CountingUserInterface implements UserInterface {
+
+    static final String[] CALLS = {"placeCard", "removeCard", "placeCards", "clearTable", "replaceSlots",
+            "placeToken", "removeTokens", "removeToken", "setCountdown", "setElapsed", "setFreeze", "setScore",
+            "announceWinner"};
+    private static final int PLACE_CARD = 0, REMOVE_CARD = 1, PLACE_CARDS = 2, CLEAR_TABLE = 3, REPLACE_SLOTS = 4,
+            PLACE_TOKEN = 5, REMOVE_TOKENS = 6, REMOVE_TOKEN = 7, SET_COUNTDOWN = 8, SET_ELAPSED = 9, SET_FREEZE = 10,
+            SET_SCORE = 11, ANNOUNCE_WINNER = 12;
+
+    private final UserInterface ui;
+    private final LongAdder[] calls;
+
+    CountingUserInterface(UserInterface ui, LongAdder[] calls) {
+        this.ui = ui;
+        this.calls = calls;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        calls[PLACE_CARD].increment();
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        calls[REMOVE_CARD].increment();
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        calls[PLACE_CARDS].increment();
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        calls[CLEAR_TABLE].increment();
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        calls[REPLACE_SLOTS].increment();
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        calls[PLACE_TOKEN].increment();
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        calls[REMOVE_TOKENS].increment();
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        calls[REMOVE_TOKENS].increment();
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        calls[REMOVE_TOKEN].increment();
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        calls[SET_COUNTDOWN].increment();
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        calls[SET_ELAPSED].increment();
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        calls[SET_FREEZE].increment();
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        calls[SET_SCORE].increment();
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        calls[ANNOUNCE_WINNER].increment();
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
@@ -0,0 +1,91 @@
+package bguspl.set.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of non negative values (e.g. nanoseconds). The values are counted in logarithmic buckets,
+ * 4 per power of two, so recording is a few atomic increments and the percentiles are within 25% of the true value.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * @return - the largest value counted in a bucket.
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile - between 0 and 1.
+     * @return - an upper bound of the value at the percentile (0 if nothing was recorded).
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) total += counts[i] = buckets.get(i);
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) return Math.min(upperBound(i), max());
+        }
+        return 0;
+    }
+
+    /**
+     * Visits the cumulative counts of the non empty buckets, in increasing order.
+     */
+    void forEachBucket(BucketVisitor visitor) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            long c = buckets.get(i);
+            if (c == 0) continue;
+            cumulative += c;
+            visitor.visit(upperBound(i), cumulative);
+        }
+    }
+
+    interface BucketVisitor {
+        void visit(long upperBound, long cumulativeCount);
+    }
+}
@@ -0,0 +1,411 @@
+package bguspl.set.metrics;
+
+import bguspl.set.GameListener;
+import bguspl.set.UserInterface;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * The game metrics: striped counters (LongAdder) and lock free histograms, cheap enough to be always on.
+ * The claims, verdicts and reshuffles are counted as a GameListener; the engine reports the claim queue depth, the
+ * table lock hold times and the dropped key presses directly, and the user interface calls are counted by wrapping
+ * the user interface (see instrument).
+ * <p>
+ * The metrics are exposed as a JMX MXBean and can be dumped periodically to a file in the OpenMetrics text format.
+ * <p>
+ * When tracing is enabled (see enableTracing), every key press carries a ClaimTrace from the input thread to the
+ * verdict; the traces are aggregated into per-stage latency histograms, and the slowest claims are kept for a dump at
+ * the end of the game.
+ */
+public class Metrics implements GameListener, MetricsMXBean, AutoCloseable {
+
+    /**
+     * Why a key press was dropped.
+     */
+    public enum Drop {
+        FROZEN, LOCKED, QUEUE_FULL
+    }
+
+    static final String OBJECT_NAME = "bguspl.set:type=Metrics";
+
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder[] verdicts = {new LongAdder(), new LongAdder(), new LongAdder()}; // cancelled, penalty, point
+    private final LongAdder reshuffles = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final Histogram claimLatency = new Histogram();
+    private final Histogram tableLockHold = new Histogram();
+    private final AtomicLongArray claimNanos;
+    private final LongAdder[][] drops; // [reason][player]
+    final LongAdder[] uiCalls = new LongAdder[CountingUserInterface.CALLS.length];
+    private final Histogram[] stageLatency = new Histogram[ClaimTrace.STAGES.length];
+    private volatile boolean tracing;
+    private int slowest;
+    private final PriorityQueue<ClaimTrace> slowestClaims = new PriorityQueue<>(Comparator.comparingLong(ClaimTrace::totalNanos));
+
+    private ScheduledExecutorService dumper;
+    private Path dumpFile;
+    private Logger dumpLogger;
+    private ObjectName registered;
+
+    /**
+     * @param players - the number of players.
+     */
+    public Metrics(int players) {
+        claimNanos = new AtomicLongArray(players);
+        drops = new LongAdder[Drop.values().length][players];
+        for (LongAdder[] reason : drops)
+            for (int i = 0; i < players; i++) reason[i] = new LongAdder();
+        for (int i = 0; i < uiCalls.length; i++) uiCalls[i] = new LongAdder();
+        for (int i = 0; i < stageLatency.length; i++) stageLatency[i] = new Histogram();
+    }
+
+    @Override
+    public void claim(int player, int[] slots) {
+        claims.increment();
+        claimNanos.set(player, System.nanoTime());
+    }
+
+    @Override
+    public void verdict(int player, int verdict) {
+        verdicts[verdict + 1].increment();
+        long start = claimNanos.getAndSet(player, 0);
+        if (start != 0) claimLatency.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void reshuffle() {
+        reshuffles.increment();
+    }
+
+    /**
+     * Reports the number of claims waiting for the dealer.
+     */
+    public void claimQueueDepth(int depth) {
+        queueDepth.set(depth);
+        if (depth > maxQueueDepth.get()) maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Reports the time the table lock was held for.
+     */
+    public void tableLockHeld(long nanos) {
+        tableLockHold.record(nanos);
+    }
+
+    /**
+     * Reports a key press that was dropped.
+     */
+    public void pressDropped(int player, Drop reason) {
+        drops[reason.ordinal()][player].increment();
+    }
+
+    // tracing
+
+    /**
+     * Enables the key press and claim tracing.
+     *
+     * @param slowest - the number of slowest claims to keep (see slowestClaims).
+     */
+    public void enableTracing(int slowest) {
+        this.slowest = slowest;
+        tracing = true;
+    }
+
+    /**
+     * Starts the trace of a key press.
+     *
+     * @param pressedNanos - the System.nanoTime the key press was received at.
+     * @return - the trace, or null if tracing is disabled.
+     */
+    public ClaimTrace startTrace(int player, int slot, long pressedNanos) {
+        return tracing ? new ClaimTrace(player, slot, pressedNanos) : null;
+    }
+
+    /**
+     * Completes the trace of a key press that did not complete a claim (null is ignored).
+     */
+    public void completeTrace(ClaimTrace trace) {
+        if (trace == null) return;
+        recordStages(trace);
+    }
+
+    /**
+     * Completes the trace of a claim with its verdict (null is ignored).
+     */
+    public void completeTrace(ClaimTrace trace, int verdict) {
+        if (trace == null) return;
+        trace.verdict(verdict);
+        recordStages(trace);
+        if (slowest > 0) synchronized (slowestClaims) {
+            slowestClaims.add(trace);
+            if (slowestClaims.size() > slowest) slowestClaims.poll();
+        }
+    }
+
+    private void recordStages(ClaimTrace trace) {
+        for (int i = 0; i < stageLatency.length; i++) {
+            long nanos = trace.stageNanos(i);
+            if (nanos >= 0) stageLatency[i].record(nanos);
+        }
+    }
+
+    /**
+     * @return - the traces of the slowest claims so far (from the key press to the verdict), slowest first.
+     */
+    public List<ClaimTrace> slowestClaims() {
+        List<ClaimTrace> traces;
+        synchronized (slowestClaims) {
+            traces = new ArrayList<>(slowestClaims);
+        }
+        traces.sort(Comparator.comparingLong(ClaimTrace::totalNanos).reversed());
+        return traces;
+    }
+
+    /**
+     * Wraps a user interface so its calls are counted.
+     */
+    public UserInterface instrument(UserInterface ui) {
+        return new CountingUserInterface(ui, uiCalls);
+    }
+
+    // JMX
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     */
+    public void registerMBean(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name); // from a previous game in this process
+            server.registerMBean(this, name);
+            registered = name;
+        } catch (JMException e) {
+            logger.severe("cannot register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    @Override
+    public long getPoints() {
+        return verdicts[VERDICT_POINT + 1].sum();
+    }
+
+    @Override
+    public long getPenalties() {
+        return verdicts[VERDICT_PENALTY + 1].sum();
+    }
+
+    @Override
+    public long getCancelledClaims() {
+        return verdicts[VERDICT_CANCELLED + 1].sum();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.sum();
+    }
+
+    @Override
+    public int getClaimQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getMaxClaimQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public long getClaimLatencyP50Micros() {
+        return claimLatency.percentile(0.5) / 1000;
+    }
+
+    @Override
+    public long getClaimLatencyP99Micros() {
+        return claimLatency.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getClaimLatencyMaxMicros() {
+        return claimLatency.max() / 1000;
+    }
+
+    @Override
+    public long getTableLockHolds() {
+        return tableLockHold.count();
+    }
+
+    @Override
+    public long getTableLockHoldP99Micros() {
+        return tableLockHold.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getTableLockHoldMaxMicros() {
+        return tableLockHold.max() / 1000;
+    }
+
+    @Override
+    public long getPressesDroppedFrozen() {
+        return dropped(Drop.FROZEN);
+    }
+
+    @Override
+    public long getPressesDroppedLocked() {
+        return dropped(Drop.LOCKED);
+    }
+
+    @Override
+    public long getPressesDroppedQueueFull() {
+        return dropped(Drop.QUEUE_FULL);
+    }
+
+    private long dropped(Drop reason) {
+        long total = 0;
+        for (LongAdder adder : drops[reason.ordinal()]) total += adder.sum();
+        return total;
+    }
+
+    @Override
+    public long getUserInterfaceCalls() {
+        long total = 0;
+        for (LongAdder adder : uiCalls) total += adder.sum();
+        return total;
+    }
+
+    // OpenMetrics
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        counter(out, "set_claims", "Claims submitted to the dealer.", claims.sum());
+        out.append("# TYPE set_verdicts counter\n# HELP set_verdicts Claims checked by the dealer, by verdict.\n");
+        String[] names = {"cancelled", "penalty", "point"};
+        for (int i = 0; i < names.length; i++)
+            out.append("set_verdicts_total{verdict=\"").append(names[i]).append("\"} ").append(verdicts[i].sum()).append('\n');
+        counter(out, "set_reshuffles", "Reshuffles due to a turn timeout.", reshuffles.sum());
+        gauge(out, "set_claim_queue_depth", "Claims waiting for the dealer.", queueDepth.get());
+        gauge(out, "set_claim_queue_depth_max", "The largest number of claims waiting for the dealer.", maxQueueDepth.get());
+        histogram(out, "set_claim_latency_seconds", "Time from a claim to its verdict.", claimLatency);
+        histogram(out, "set_table_lock_hold_seconds", "Time the table lock is held for.", tableLockHold);
+        if (tracing) {
+            String name = "set_claim_stage_seconds";
+            out.append("# TYPE ").append(name).append(" histogram\n# HELP ").append(name)
+                    .append(" Time spent in each stage from a key press to the verdict (see ClaimTrace).\n");
+            for (int i = 0; i < stageLatency.length; i++)
+                series(out, name, "stage=\"" + ClaimTrace.STAGES[i] + "\",", stageLatency[i]);
+        }
+
+        out.append("# TYPE set_presses_dropped counter\n# HELP set_presses_dropped Key presses dropped, by player and reason.\n");
+        for (Drop reason : Drop.values())
+            for (int player = 0; player < claimNanos.length(); player++) {
+                long count = drops[reason.ordinal()][player].sum();
+                if (count > 0)
+                    out.append("set_presses_dropped_total{player=\"").append(player).append("\",reason=\"")
+                            .append(reason.name().toLowerCase(Locale.ROOT)).append("\"} ").append(count).append('\n');
+            }
+
+        out.append("# TYPE set_ui_calls counter\n# HELP set_ui_calls User interface calls, by method.\n");
+        for (int i = 0; i < uiCalls.length; i++)
+            out.append("set_ui_calls_total{method=\"").append(CountingUserInterface.CALLS[i]).append("\"} ")
+                    .append(uiCalls[i].sum()).append('\n');
+        out.append("# EOF\n");
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# TYPE ").append(name).append(" counter\n# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append(name).append("_total ").append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# TYPE ").append(name).append(" gauge\n# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, Histogram histogram) {
+        out.append("# TYPE ").append(name).append(" histogram\n# HELP ").append(name).append(' ').append(help).append('\n');
+        series(out, name, "", histogram);
+    }
+
+    /**
+     * Writes the samples of one histogram series (labels is empty or a list of labels followed by a comma).
+     */
+    private static void series(StringBuilder out, String name, String labels, Histogram histogram) {
+        histogram.forEachBucket((upperBound, cumulative) -> out.append(name).append("_bucket{").append(labels)
+                .append("le=\"").append(seconds(upperBound)).append("\"} ").append(cumulative).append('\n'));
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(histogram.count()).append('\n');
+        String set = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.append(name).append("_count").append(set).append(' ').append(histogram.count()).append('\n');
+        out.append(name).append("_sum").append(set).append(' ').append(seconds(histogram.sum())).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Writes the metrics to a file every interval (replacing the file atomically), and once more on close.
+     */
+    public void startDump(Path file, long intervalMillis, Logger logger) {
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> writeDump(file, logger), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        dumpFile = file;
+        dumpLogger = logger;
+    }
+
+    private void writeDump(Path file, Logger logger) {
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(dump());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.severe("cannot write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            writeDump(dumpFile, dumpLogger);
+        }
+        if (registered != null) try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (JMException ignored) {
+        }
+    }
+}
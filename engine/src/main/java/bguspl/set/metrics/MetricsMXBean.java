@@ -0,0 +1,46 @@
+package bguspl.set.metrics;
+
+/**
+ * The game metrics exposed through JMX (as bguspl.set:type=Metrics). Times are in microseconds.
+ */
+public interface MetricsMXBean {
+
+    long getClaims();
+
+    long getPoints();
+
+    long getPenalties();
+
+    long getCancelledClaims();
+
+    long getReshuffles();
+
+    int getClaimQueueDepth();
+
+    int getMaxClaimQueueDepth();
+
+    long getClaimLatencyP50Micros();
+
+    long getClaimLatencyP99Micros();
+
+    long getClaimLatencyMaxMicros();
+
+    long getTableLockHolds();
+
+    long getTableLockHoldP99Micros();
+
+    long getTableLockHoldMaxMicros();
+
+    long getPressesDroppedFrozen();
+
+    long getPressesDroppedLocked();
+
+    long getPressesDroppedQueueFull();
+
+    long getUserInterfaceCalls();
+
+    /**
+     * @return - the metrics in the OpenMetrics text format.
+     */
+    String dump();
+}
@@ -0,0 +1,117 @@
+package bguspl.set.net;
+
+import bguspl.set.UserInterface;
+
+/**
+ * Sends the state changes to the clients of a GameServer and forwards them to the next user interface.
+ */
+class BroadcastUserInterface implements UserInterface {
+
+    private final UserInterface ui;
+    private final GameServer server;
+
+    BroadcastUserInterface(UserInterface ui, GameServer server) {
+        this.ui = ui;
+        this.server = server;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cards(new int[]{slot}, new int[]{card});
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cards(new int[]{slot}, new int[]{-1});
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        cards(slots, cards);
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        int[] slots = new int[server.tableSize()], cards = new int[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            slots[slot] = slot;
+            cards[slot] = -1;
+        }
+        server.broadcast(Protocol.clear(Protocol.SPECTATOR));
+        cards(slots, cards);
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        for (int slot : slots) server.broadcast(Protocol.clear(slot));
+        cards(slots, cards);
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    private void cards(int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; i++) server.tableChanged(slots[i], Math.max(cards[i], -1));
+        server.broadcast(Protocol.cards(slots, cards));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        server.broadcast(Protocol.token(player, slot, true));
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        server.broadcast(Protocol.clear(Protocol.SPECTATOR));
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        server.broadcast(Protocol.clear(slot));
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        server.broadcast(Protocol.token(player, slot, false));
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        server.broadcast(Protocol.countdown(millies, warn));
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        server.broadcast(Protocol.freeze(player, millies));
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        server.broadcast(Protocol.score(player, score));
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        server.broadcast(Protocol.winners(players));
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
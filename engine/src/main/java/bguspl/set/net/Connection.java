@@ -0,0 +1,97 @@
+package bguspl.set.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * A client connection, owned by one selector loop (only the loop thread touches it).
+ */
+final class Connection {
+
+    final SocketChannel channel;
+    final SelectionKey key;
+
+    /**
+     * The bytes read and not yet parsed (at most one frame more than the largest client frame).
+     */
+    final ByteBuffer in = ByteBuffer.allocate(2 * Protocol.MAX_CLIENT_FRAME + Protocol.HEADER);
+
+    /**
+     * The frames waiting to be written (the broadcast frames are shared, each connection has its own duplicate).
+     */
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private int queued;
+
+    /**
+     * The player this connection plays as (Protocol.SPECTATOR if none).
+     */
+    int player = Protocol.SPECTATOR;
+
+    /**
+     * True iff the connection receives the spectator frames (see Protocol.WATCH).
+     */
+    boolean watching;
+
+    /**
+     * The version of the last spectator frame queued to a watching connection (-1 while it waits for a keyframe).
+     */
+    long version = -1;
+
+    /**
+     * True iff the connection is in its loop's list of connections to flush.
+     */
+    boolean dirty;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Queues a frame.
+     *
+     * @return - false iff the frame does not fit in the connection's bounded output (the client is too slow).
+     */
+    boolean send(ByteBuffer frame, int maxQueued) {
+        if (queued + frame.remaining() > maxQueued) return false;
+        out.add(frame);
+        queued += frame.remaining();
+        return true;
+    }
+
+    /**
+     * Drops the queued output, except a frame that is partially written already.
+     */
+    void dropOutput() {
+        ByteBuffer head = out.peek();
+        boolean started = head != null && head.position() > 0;
+        out.clear();
+        queued = 0;
+        if (started) {
+            out.add(head);
+            queued = head.remaining();
+        }
+    }
+
+    boolean hasOutput() {
+        return !out.isEmpty();
+    }
+
+    /**
+     * Writes as much of the queued output as the socket takes, and asks for a write event if anything is left.
+     */
+    void flush() throws IOException {
+        while (!out.isEmpty()) {
+            ByteBuffer head = out.peek();
+            int written = channel.write(head);
+            queued -= written;
+            if (head.hasRemaining()) break; // the socket buffer is full
+            out.poll();
+        }
+        int ops = out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (key.interestOps() != ops) key.interestOps(ops);
+    }
+}
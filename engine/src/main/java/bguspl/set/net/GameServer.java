@@ -0,0 +1,182 @@
+package bguspl.set.net;
+
+import bguspl.set.Config;
+import bguspl.set.GameListener;
+import bguspl.set.KeyInput;
+import bguspl.set.UserInterface;
+import bguspl.set.spectator.SpectatorChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+
+/**
+ * The network front end: remote clients join as human players and send key presses, and receive the state deltas and
+ * the verdicts (see Protocol).
+ * <p>
+ * The server is non-blocking: a few selector loops (see SelectorLoop) serve all the connections, each connection has
+ * bounded input and output buffers (a client that does not read its output fast enough is disconnected), and the game
+ * threads only encode each event once and hand the frame to the loops. The key presses go to the game's KeyInput, with
+ * the same semantics as Player.keyPressed (the client gets the result in a KEY_RESULT frame).
+ * <p>
+ * With a spectator channel (see spectate), a client may watch instead: it then gets the channel's versioned frames,
+ * a keyframe of the whole state first and the deltas after it, shared by all the watching connections like the
+ * broadcast frames.
+ */
+public class GameServer implements GameListener, AutoCloseable {
+
+    final Logger logger;
+    final int maxQueuedBytes;
+    private final Config config;
+    private final KeyInput input;
+    private final SelectorLoop[] loops;
+    private final Thread[] threads;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicIntegerArray joined; // 1 iff a connection plays as the (human) player
+    private final AtomicIntegerArray table; // the card in every slot (-1 if none), sent to joining clients
+    private ServerSocketChannel channel;
+    private volatile SpectatorChannel spectators;
+
+    /**
+     * @param config - the game configuration (the number of selector loops and the output buffer size are taken from
+     *               NetThreads and NetBufferBytes).
+     * @param input  - where the key presses of the remote players go.
+     */
+    public GameServer(Config config, KeyInput input, Logger logger) throws IOException {
+        this.config = config;
+        this.input = input;
+        this.logger = logger;
+        this.maxQueuedBytes = config.netBufferBytes;
+        joined = new AtomicIntegerArray(config.humanPlayers);
+        table = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; slot++) table.set(slot, -1);
+        loops = new SelectorLoop[Math.max(1, config.netThreads)];
+        threads = new Thread[loops.length];
+        for (int i = 0; i < loops.length; i++) loops[i] = new SelectorLoop(this);
+    }
+
+    /**
+     * Binds the server socket and starts the selector loops.
+     *
+     * @param port - the port to listen on (0 for any free port, see port).
+     */
+    public void start(int port) throws IOException {
+        channel = ServerSocketChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port), 1024);
+        loops[0].listen(channel);
+        for (int i = 0; i < loops.length; i++) {
+            threads[i] = new Thread(loops[i], "net-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        logger.severe("listening for players on port " + port());
+    }
+
+    /**
+     * @return - the port the server listens on.
+     */
+    public int port() {
+        return channel.socket().getLocalPort();
+    }
+
+    /**
+     * Serves the frames of a spectator channel to the watching clients.
+     */
+    public void spectate(SpectatorChannel spectators) {
+        this.spectators = spectators;
+        spectators.subscribe(frame -> {
+            for (SelectorLoop loop : loops) loop.spectate(frame);
+        });
+    }
+
+    SelectorLoop nextLoop() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Handles a frame from a client (called by the connection's loop thread).
+     *
+     * @param in     - positioned at the payload.
+     * @param length - the length of the payload.
+     */
+    void handle(SelectorLoop loop, Connection connection, int type, ByteBuffer in, int length) {
+        if (length < 2) return; // all the client frames carry a u16
+        int value = in.getShort() & 0xFFFF;
+        if (connection.watching) return;
+        if (type == Protocol.WATCH) {
+            SpectatorChannel spectators = this.spectators;
+            if (spectators != null && connection.player == Protocol.SPECTATOR) loop.watch(connection, spectators);
+        } else if (type == Protocol.JOIN) {
+            if (connection.player == Protocol.SPECTATOR && value < config.humanPlayers && joined.compareAndSet(value, 0, 1))
+                connection.player = value;
+            loop.send(connection, Protocol.joined(connection.player, config.players, config.tableSize));
+            int[] slots = new int[config.tableSize], cards = new int[config.tableSize];
+            for (int slot = 0; slot < slots.length; slot++) {
+                slots[slot] = slot;
+                cards[slot] = table.get(slot);
+            }
+            loop.send(connection, Protocol.cards(slots, cards));
+        } else if (type == Protocol.KEY) {
+            boolean accepted = connection.player != Protocol.SPECTATOR && value < config.tableSize
+                    && input.keyPressed(connection.player, value, System.nanoTime());
+            loop.send(connection, Protocol.keyResult(value, accepted));
+        }
+    }
+
+    /**
+     * A connection was closed (called by the connection's loop thread).
+     */
+    void left(Connection connection) {
+        if (connection.player != Protocol.SPECTATOR) joined.set(connection.player, 0);
+    }
+
+    /**
+     * Sends a frame to all the clients (encoded once, shared by all the connections).
+     */
+    void broadcast(ByteBuffer frame) {
+        for (SelectorLoop loop : loops) loop.broadcast(frame);
+    }
+
+    void tableChanged(int slot, int card) {
+        table.set(slot, card);
+    }
+
+    int tableSize() {
+        return config.tableSize;
+    }
+
+    /**
+     * Wraps a user interface so its state changes are also sent to the clients.
+     */
+    public UserInterface broadcast(UserInterface ui) {
+        return new BroadcastUserInterface(ui, this);
+    }
+
+    @Override
+    public void verdict(int player, int verdict) {
+        broadcast(Protocol.verdict(player, verdict));
+    }
+
+    /**
+     * @return - the number of connected clients.
+     */
+    public int connections() {
+        int total = 0;
+        for (SelectorLoop loop : loops) total += loop.connections();
+        return total;
+    }
+
+    @Override
+    public void close() {
+        for (SelectorLoop loop : loops) loop.close();
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
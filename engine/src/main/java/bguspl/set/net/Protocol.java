@@ -0,0 +1,124 @@
+package bguspl.set.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol between the game server and its clients.
+ * <p>
+ * Every message is a frame: length (u16, the number of bytes after it), type (u8), payload. All numbers are big
+ * endian; a player id of SPECTATOR joins as a spectator, and a card id of -1 is an empty slot.
+ * <pre>
+ * client to server:
+ *   JOIN       player (u16)
+ *   KEY        slot (u16)
+ *   WATCH      0 (u16): from then on, the connection receives the spectator frames (see bguspl.set.spectator.Frame:
+ *              the latest keyframe first, then the versioned deltas) instead of the frames below
+ * server to client:
+ *   JOINED     player (u16, SPECTATOR if the join failed), players (u16), table size (u16)
+ *   KEY_RESULT slot (u16), accepted (u8, the result of Player.keyPressed)
+ *   CARDS      count (u16), then count times: slot (u16), card (i16)
+ *   TOKEN      player (u16), slot (u16), placed (u8)
+ *   CLEAR      slot (u16, SPECTATOR for all the slots): all the tokens on the slot were removed
+ *   SCORE      player (u16), score (i32)
+ *   FREEZE     player (u16), millis (i64)
+ *   COUNTDOWN  millis (i64), warn (u8)
+ *   VERDICT    player (u16), verdict (i8, see GameListener)
+ *   WINNERS    count (u16), then count times: player (u16)
+ * </pre>
+ * A client must join before its key presses are accepted; every client (joined or not) receives the state deltas. A
+ * watching client ignores its JOIN and KEY frames; a watching client that is too slow is not disconnected, its queued
+ * frames are dropped and it resumes from the next keyframe.
+ */
+final class Protocol {
+
+    static final int JOIN = 1;
+    static final int KEY = 2;
+    static final int WATCH = 3;
+
+    static final int JOINED = 16;
+    static final int KEY_RESULT = 17;
+    static final int CARDS = 18;
+    static final int TOKEN = 19;
+    static final int CLEAR = 20;
+    static final int SCORE = 21;
+    static final int FREEZE = 22;
+    static final int COUNTDOWN = 23;
+    static final int VERDICT = 24;
+    static final int WINNERS = 25;
+
+    static final int SPECTATOR = 0xFFFF;
+
+    /**
+     * The size of the frame header (length and type).
+     */
+    static final int HEADER = 3;
+
+    /**
+     * The largest frame a client may send.
+     */
+    static final int MAX_CLIENT_FRAME = 16;
+
+    private Protocol() {
+    }
+
+    /**
+     * Allocates a frame with the header filled in, positioned at the start of the payload.
+     */
+    static ByteBuffer frame(int type, int payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + payload);
+        frame.putShort((short) (payload + 1)).put((byte) type);
+        return frame;
+    }
+
+    static ByteBuffer cards(int[] slots, int[] cards) {
+        ByteBuffer frame = frame(CARDS, 2 + 4 * slots.length).putShort((short) slots.length);
+        for (int i = 0; i < slots.length; i++) frame.putShort((short) slots[i]).putShort((short) Math.max(cards[i], -1));
+        return frame.flip();
+    }
+
+    static ByteBuffer token(int player, int slot, boolean placed) {
+        return frame(TOKEN, 5).putShort((short) player).putShort((short) slot).put((byte) (placed ? 1 : 0)).flip();
+    }
+
+    static ByteBuffer clear(int slot) {
+        return frame(CLEAR, 2).putShort((short) slot).flip();
+    }
+
+    static ByteBuffer score(int player, int score) {
+        return frame(SCORE, 6).putShort((short) player).putInt(score).flip();
+    }
+
+    static ByteBuffer freeze(int player, long millis) {
+        return frame(FREEZE, 10).putShort((short) player).putLong(millis).flip();
+    }
+
+    static ByteBuffer countdown(long millis, boolean warn) {
+        return frame(COUNTDOWN, 9).putLong(millis).put((byte) (warn ? 1 : 0)).flip();
+    }
+
+    static ByteBuffer verdict(int player, int verdict) {
+        return frame(VERDICT, 3).putShort((short) player).put((byte) verdict).flip();
+    }
+
+    static ByteBuffer winners(int[] players) {
+        ByteBuffer frame = frame(WINNERS, 2 + 2 * players.length).putShort((short) players.length);
+        for (int player : players) frame.putShort((short) player);
+        return frame.flip();
+    }
+
+    static ByteBuffer joined(int player, int players, int tableSize) {
+        return frame(JOINED, 6).putShort((short) player).putShort((short) players).putShort((short) tableSize).flip();
+    }
+
+    static ByteBuffer keyResult(int slot, boolean accepted) {
+        return frame(KEY_RESULT, 3).putShort((short) slot).put((byte) (accepted ? 1 : 0)).flip();
+    }
+
+    static ByteBuffer join(int player) {
+        return frame(JOIN, 2).putShort((short) player).flip();
+    }
+
+    static ByteBuffer key(int slot) {
+        return frame(KEY, 2).putShort((short) slot).flip();
+    }
+}
@@ -0,0 +1,262 @@
+package bguspl.set.net;
+
+import bguspl.set.spectator.Frame;
+import bguspl.set.spectator.SpectatorChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One selector thread of the server: it owns a share of the connections, reads their frames, and writes the broadcast
+ * frames (or, to the watching connections, the spectator frames) to them. The other threads only hand it accepted
+ * channels, broadcast frames and spectator frames, through lock free queues.
+ */
+final class SelectorLoop implements Runnable {
+
+    private final GameServer server;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> broadcasts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Frame> frames = new ConcurrentLinkedQueue<>();
+    private long lastVersion = -1; // the version of the last spectator frame fanned out
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Connection> dirty = new ArrayList<>();
+    private volatile boolean closed;
+
+    SelectorLoop(GameServer server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Accepts the connections of a server socket on this loop.
+     */
+    void listen(ServerSocketChannel channel) throws IOException {
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Hands an accepted connection to this loop (called by the accepting loop).
+     */
+    void add(SocketChannel channel) {
+        accepted.add(channel);
+        wakeup();
+    }
+
+    /**
+     * Sends a frame to all the connections of this loop (called by the game threads).
+     */
+    void broadcast(ByteBuffer frame) {
+        broadcasts.add(frame);
+        wakeup();
+    }
+
+    /**
+     * Sends a spectator frame to the watching connections of this loop (called by the spectator thread, in version
+     * order).
+     */
+    void spectate(Frame frame) {
+        frames.add(frame);
+        wakeup();
+    }
+
+    int connections() {
+        return connections.size();
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                registerAccepted();
+                fanOut();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept((ServerSocketChannel) key.channel());
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) read(connection);
+                        if (key.isValid() && key.isWritable()) write(connection);
+                    }
+                }
+                flushDirty();
+            }
+        } catch (IOException e) {
+            server.logger.severe("selector loop failed: " + e.getMessage());
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) close(connection);
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel channel) throws IOException {
+        SocketChannel client;
+        while ((client = channel.accept()) != null) server.nextLoop().add(client);
+    }
+
+    private void registerAccepted() {
+        SocketChannel channel;
+        while ((channel = accepted.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Connection connection = new Connection(channel, key);
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void fanOut() {
+        ByteBuffer frame;
+        while ((frame = broadcasts.poll()) != null)
+            for (int i = connections.size() - 1; i >= 0; i--) {
+                Connection connection = connections.get(i);
+                if (!connection.watching) send(connection, frame.duplicate());
+            }
+        Frame spectatorFrame;
+        while ((spectatorFrame = frames.poll()) != null) {
+            lastVersion = spectatorFrame.version;
+            for (int i = connections.size() - 1; i >= 0; i--) {
+                Connection connection = connections.get(i);
+                if (connection.watching) deliver(connection, spectatorFrame);
+            }
+        }
+    }
+
+    /**
+     * Turns a connection into a watching one: queues the latest keyframe, and the frames since then that this loop has
+     * fanned out already (the later ones are fanned out as they come).
+     */
+    void watch(Connection connection, SpectatorChannel spectators) {
+        if (connection.watching) return;
+        connection.watching = true;
+        connection.version = -1;
+        Frame keyframe = spectators.keyframe();
+        deliver(connection, keyframe);
+        for (long version = keyframe.version + 1; version <= lastVersion && connection.version >= 0; version++) {
+            Frame frame = spectators.frame(version);
+            if (frame == null) connection.version = -1; // overwritten: wait for the next keyframe
+            else deliver(connection, frame);
+        }
+    }
+
+    /**
+     * Queues a spectator frame to a watching connection if it is the next version, or a keyframe after a gap.
+     */
+    private void deliver(Connection connection, Frame frame) {
+        if (connection.version >= 0 && frame.version <= connection.version) return; // sent already
+        if (connection.version >= 0 && frame.version != connection.version + 1) connection.version = -1;
+        if (connection.version < 0 && frame.type != Frame.KEYFRAME) return;
+        connection.version = frame.version;
+        send(connection, frame.buffer());
+    }
+
+    /**
+     * Queues a frame to a connection. If its output is full, a playing connection is closed, and a watching one drops
+     * its queued frames and waits for the next keyframe.
+     */
+    void send(Connection connection, ByteBuffer frame) {
+        if (!connection.send(frame, server.maxQueuedBytes)) {
+            if (connection.watching) {
+                connection.dropOutput();
+                connection.version = -1;
+                return;
+            }
+            server.logger.info("dropping slow client " + connection.channel.socket().getRemoteSocketAddress());
+            close(connection);
+            return;
+        }
+        if (!connection.dirty) {
+            connection.dirty = true;
+            dirty.add(connection);
+        }
+    }
+
+    private void flushDirty() {
+        for (Connection connection : dirty) {
+            connection.dirty = false;
+            write(connection);
+        }
+        dirty.clear();
+    }
+
+    private void write(Connection connection) {
+        if (!connection.key.isValid()) return;
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    private void read(Connection connection) {
+        try {
+            if (connection.channel.read(connection.in) < 0) {
+                close(connection);
+                return;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        ByteBuffer in = connection.in.flip();
+        while (in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length == 0 || length > Protocol.MAX_CLIENT_FRAME - 2) { // not our protocol
+                close(connection);
+                return;
+            }
+            if (in.remaining() < 2 + length) break;
+            in.getShort();
+            int type = in.get() & 0xFF;
+            int end = in.position() + length - 1;
+            server.handle(this, connection, type, in, length - 1);
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    void close(Connection connection) {
+        if (!connections.remove(connection)) return;
+        connection.key.cancel(); // if it is still in dirty, write skips it
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+        server.left(connection);
+    }
+}
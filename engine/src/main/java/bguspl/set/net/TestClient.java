@@ -0,0 +1,140 @@
+package bguspl.set.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A test client for the GameServer: opens many connections from one selector thread, joins each one as a player
+ * (the connections beyond the human players stay spectators), sends random key presses at a fixed rate, and prints
+ * what it received.
+ * <p>
+ * Arguments (key=value): host (default localhost), port (default 7777), clients (default 10), rate (key presses per
+ * second per player, default 5), seconds (default 30).
+ */
+public class TestClient {
+
+    private static final class Client {
+        final SocketChannel channel;
+        final int id;
+        final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        int player = -1; // -1 until joined, Protocol.SPECTATOR if the join failed
+        int tableSize;
+
+        Client(SocketChannel channel, int id) {
+            this.channel = channel;
+            this.id = id;
+        }
+    }
+
+    private final long[] frames = new long[256]; // by type
+    private long bytes, accepted, rejected, joinedPlayers, spectators;
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = 7777, clients = 10;
+        double rate = 5, seconds = 30;
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            switch (keyValue[0]) {
+                case "host": host = keyValue[1]; break;
+                case "port": port = Integer.parseInt(keyValue[1]); break;
+                case "clients": clients = Integer.parseInt(keyValue[1]); break;
+                case "rate": rate = Double.parseDouble(keyValue[1]); break;
+                case "seconds": seconds = Double.parseDouble(keyValue[1]); break;
+                default: throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+        new TestClient().run(new InetSocketAddress(host, port), clients, rate, seconds);
+    }
+
+    private void run(InetSocketAddress address, int count, double rate, double seconds) throws IOException {
+        SplittableRandom random = new SplittableRandom();
+        List<Client> clients = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < count; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                Client client = new Client(channel, i);
+                channel.register(selector, channel.connect(address) ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, client);
+                if (channel.isConnected()) send(client, Protocol.join(i));
+                clients.add(client);
+            }
+            long start = System.nanoTime(), end = start + (long) (seconds * 1e9);
+            long interval = (long) (1e9 / rate), nextPress = start + interval;
+            while (System.nanoTime() < end) {
+                long wait = Math.max(1, TimeUnit.NANOSECONDS.toMillis(Math.min(nextPress, end) - System.nanoTime()));
+                selector.select(wait);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    if (key.isConnectable() && client.channel.finishConnect()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        send(client, Protocol.join(client.id));
+                    } else if (key.isReadable()) {
+                        read(client, key);
+                    }
+                }
+                if (System.nanoTime() >= nextPress) {
+                    for (Client client : clients)
+                        if (client.player >= 0 && client.player != Protocol.SPECTATOR && client.channel.isOpen())
+                            send(client, Protocol.key(random.nextInt(client.tableSize)));
+                    nextPress += interval;
+                }
+            }
+            for (Client client : clients) client.channel.close();
+        }
+        System.out.printf("%d clients: %d players, %d spectators, %d key presses accepted, %d rejected%n",
+                count, joinedPlayers, spectators, accepted, rejected);
+        System.out.printf("received %d bytes: %d card, %d token, %d clear, %d score, %d freeze, %d countdown, "
+                        + "%d verdict and %d winners frames%n", bytes, frames[Protocol.CARDS], frames[Protocol.TOKEN],
+                frames[Protocol.CLEAR], frames[Protocol.SCORE], frames[Protocol.FREEZE], frames[Protocol.COUNTDOWN],
+                frames[Protocol.VERDICT], frames[Protocol.WINNERS]);
+    }
+
+    private static void send(Client client, ByteBuffer frame) throws IOException {
+        client.channel.write(frame); // the frames are tiny, the socket buffer always takes them whole
+    }
+
+    private void read(Client client, SelectionKey key) throws IOException {
+        int read = client.channel.read(client.in);
+        if (read < 0) {
+            key.cancel();
+            client.channel.close();
+            return;
+        }
+        bytes += read;
+        ByteBuffer in = client.in.flip();
+        while (in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (in.remaining() < 2 + length) break;
+            int next = in.position() + 2 + length;
+            in.getShort();
+            int type = in.get() & 0xFF;
+            frames[type]++;
+            if (type == Protocol.JOINED) {
+                client.player = in.getShort() & 0xFFFF;
+                in.getShort();
+                client.tableSize = in.getShort() & 0xFFFF;
+                if (client.player == Protocol.SPECTATOR) spectators++;
+                else joinedPlayers++;
+            } else if (type == Protocol.KEY_RESULT) {
+                in.getShort();
+                if (in.get() == 1) accepted++;
+                else rejected++;
+            }
+            in.position(next);
+        }
+        in.compact();
+    }
+}
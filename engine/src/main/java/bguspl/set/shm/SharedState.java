@@ -0,0 +1,69 @@
+package bguspl.set.shm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The layout of the shared state file (little endian), written by SharedStateWriter and read by SharedStateReader:
+ * <pre>
+ *   offset  0  magic (i32, "SETS")
+ *           4  layout version (i32)
+ *           8  table size (i32)
+ *          12  players (i32)
+ *          16  sequence (i64): odd while the writer is changing the state, incremented by 2 by every change
+ *          24  the time of the last change (i64, game clock millis: epoch millis unless in simulated time)
+ *          32  countdown millis (i64)
+ *          40  warn (i32, 0 or 1)
+ *          44  closed (i32, 1 once the game is over)
+ *          48  per slot: card (i32, -1 for none)
+ *          TOKENS  per slot: the token bitmask (words i64, bit p of word p / 64 is player p), aligned to 8
+ *          SCORES  per player: score (i32)
+ * </pre>
+ * where words = (players + 63) / 64. A reader copies the state between two reads of the sequence, and retries if the
+ * sequence was odd or changed (a seqlock): the writer never waits for the readers.
+ */
+final class SharedState {
+
+    static final int MAGIC = 0x53455453;
+    static final int LAYOUT_VERSION = 2;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int LAYOUT_OFFSET = 4;
+    static final int TABLE_SIZE_OFFSET = 8;
+    static final int PLAYERS_OFFSET = 12;
+    static final int SEQUENCE_OFFSET = 16;
+    static final int UPDATED_OFFSET = 24;
+    static final int COUNTDOWN_OFFSET = 32;
+    static final int WARN_OFFSET = 40;
+    static final int CLOSED_OFFSET = 44;
+    static final int CARDS_OFFSET = 48;
+    static final int HEADER = CARDS_OFFSET;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Atomic (acquire/release) access to the sequence in the mapped buffer.
+     */
+    static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class, ORDER);
+
+    final int tableSize;
+    final int players;
+    final int words;
+    final int tokensOffset;
+    final int scoresOffset;
+    final int size;
+
+    SharedState(int tableSize, int players) {
+        this.tableSize = tableSize;
+        this.players = players;
+        this.words = (players + 63) / 64;
+        this.tokensOffset = (CARDS_OFFSET + 4 * tableSize + 7) & ~7;
+        this.scoresOffset = tokensOffset + 8 * words * tableSize;
+        this.size = scoresOffset + 4 * players;
+    }
+
+    int tokenOffset(int slot, int word) {
+        return tokensOffset + 8 * (slot * words + word);
+    }
+}
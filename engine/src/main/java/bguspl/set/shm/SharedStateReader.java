@@ -0,0 +1,181 @@
+package bguspl.set.shm;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static bguspl.set.shm.SharedState.*;
+
+/**
+ * Reads consistent snapshots of a game state exported by SharedStateWriter, straight from the memory mapped file (no
+ * calls into the game process). A reader is used by one thread at a time.
+ * <p>
+ * As a program, prints the state of a running game every interval: arguments file (default game.state) and interval
+ * (milliseconds, default 1000).
+ */
+public class SharedStateReader implements AutoCloseable {
+
+    /**
+     * A snapshot of the game state (reusable: read(snapshot) overwrites it).
+     */
+    public static final class Snapshot {
+        /** The number of changes since the game started. */
+        public long version;
+        /** The time of the last change (game clock millis). */
+        public long updated;
+        public final int[] cards;
+        /** [slot][player / 64]: bit player % 64 is set iff the player has a token on the slot. */
+        public final long[][] tokens;
+        public final int[] scores;
+        public long countdown;
+        public boolean warn;
+        /** Whether the game is over. */
+        public boolean closed;
+
+        Snapshot(int tableSize, int players) {
+            cards = new int[tableSize];
+            tokens = new long[tableSize][(players + 63) / 64];
+            scores = new int[players];
+        }
+
+        public boolean hasToken(int player, int slot) {
+            return (tokens[slot][player >>> 6] & 1L << player) != 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("version ").append(version).append(closed ? " (closed)" : "")
+                    .append(", countdown ").append(countdown).append(warn ? " (warn)" : "")
+                    .append(", scores ").append(Arrays.toString(scores)).append(", slots");
+            for (int slot = 0; slot < cards.length; slot++) {
+                text.append(' ').append(cards[slot]);
+                int tokenCount = 0;
+                for (long word : tokens[slot]) tokenCount += Long.bitCount(word);
+                if (tokenCount > 0) text.append('*').append(tokenCount);
+            }
+            return text.toString();
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final SharedState layout;
+    private long retries;
+
+    /**
+     * Maps an exported game state.
+     *
+     * @throws IOException - if the file cannot be mapped, or is not a game state file (yet).
+     */
+    public SharedStateReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER) throw new IOException(file + " is not a game state file");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            header.order(ORDER);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) throw new IOException(file + " is not a game state file");
+            if (header.getInt(LAYOUT_OFFSET) != LAYOUT_VERSION)
+                throw new IOException(file + " has layout version " + header.getInt(LAYOUT_OFFSET));
+            layout = new SharedState(header.getInt(TABLE_SIZE_OFFSET), header.getInt(PLAYERS_OFFSET));
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, layout.size);
+            buffer.order(ORDER);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return - a snapshot sized for this game (to pass to read).
+     */
+    public Snapshot newSnapshot() {
+        return new Snapshot(layout.tableSize, layout.players);
+    }
+
+    /**
+     * @return - a consistent snapshot of the current state.
+     */
+    public Snapshot read() {
+        Snapshot snapshot = newSnapshot();
+        read(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Copies a consistent snapshot of the current state into snapshot (retrying while the writer changes it).
+     */
+    public void read(Snapshot snapshot) {
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(buffer, SEQUENCE_OFFSET);
+            if ((before & 1) == 0) {
+                copy(snapshot);
+                VarHandle.loadLoadFence(); // the copy is done before the sequence is read again
+                if ((long) SEQUENCE.getOpaque(buffer, SEQUENCE_OFFSET) == before) {
+                    snapshot.version = before >>> 1;
+                    return;
+                }
+            }
+            retries++;
+            Thread.onSpinWait();
+        }
+    }
+
+    private void copy(Snapshot snapshot) {
+        snapshot.updated = buffer.getLong(UPDATED_OFFSET);
+        snapshot.countdown = buffer.getLong(COUNTDOWN_OFFSET);
+        snapshot.warn = buffer.getInt(WARN_OFFSET) != 0;
+        snapshot.closed = buffer.getInt(CLOSED_OFFSET) != 0;
+        for (int slot = 0; slot < layout.tableSize; slot++) {
+            snapshot.cards[slot] = buffer.getInt(CARDS_OFFSET + 4 * slot);
+            for (int word = 0; word < layout.words; word++)
+                snapshot.tokens[slot][word] = buffer.getLong(layout.tokenOffset(slot, word));
+        }
+        for (int player = 0; player < layout.players; player++)
+            snapshot.scores[player] = buffer.getInt(layout.scoresOffset + 4 * player);
+    }
+
+    /**
+     * @return - the version of the current state, without copying it (to poll for changes cheaply).
+     */
+    public long version() {
+        return (long) SEQUENCE.getAcquire(buffer, SEQUENCE_OFFSET) >>> 1;
+    }
+
+    /**
+     * @return - the number of times a read was retried because the writer was changing the state.
+     */
+    public long retries() {
+        return retries;
+    }
+
+    public int tableSize() {
+        return layout.tableSize;
+    }
+
+    public int players() {
+        return layout.players;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "game.state");
+        long interval = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        try (SharedStateReader reader = new SharedStateReader(file)) {
+            Snapshot snapshot = reader.newSnapshot();
+            do {
+                reader.read(snapshot);
+                System.out.println(snapshot + " (" + reader.retries() + " retries)");
+                Thread.sleep(interval);
+            } while (!snapshot.closed);
+        }
+    }
+}
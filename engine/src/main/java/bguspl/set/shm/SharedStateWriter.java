@@ -0,0 +1,250 @@
+package bguspl.set.shm;
+
+import bguspl.set.Clock;
+import bguspl.set.UserInterface;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import static bguspl.set.shm.SharedState.*;
+
+/**
+ * Exports the live game state (the cards, the tokens, the scores and the countdown) into a memory mapped file, for
+ * other local processes to read with SharedStateReader (see SharedState for the layout).
+ * <p>
+ * Every change is written in place, under a seqlock: the sequence is made odd, the state is changed, and the sequence
+ * is made even again. A change costs a few stores into the mapped memory; the writer never waits for the readers, and
+ * the readers make no calls into the game.
+ * <p>
+ * The writer is a user interface decorator: the calls are forwarded to the next user interface.
+ */
+public class SharedStateWriter implements UserInterface, AutoCloseable {
+
+    private final UserInterface ui;
+    private final Clock clock;
+    private final Logger logger;
+    private final SharedState layout;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private long sequence; // guarded by this
+
+    /**
+     * Creates the file with the initial state (no cards, no tokens, zero scores). The file is prepared under a
+     * temporary name and then moved over the file, so a reader still mapping the file of an earlier game keeps its
+     * (now detached) old file instead of having it shrunk under it.
+     *
+     * @param ui    - the next user interface (null if none).
+     * @param clock - the game clock (the time of every change is taken from it).
+     */
+    public SharedStateWriter(UserInterface ui, Path file, int tableSize, int players, Clock clock, Logger logger)
+            throws IOException {
+        this.ui = ui;
+        this.clock = clock;
+        this.logger = logger;
+        layout = new SharedState(tableSize, players);
+        Path temporary = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.size);
+        buffer.order(ORDER);
+        buffer.putInt(TABLE_SIZE_OFFSET, tableSize).putInt(PLAYERS_OFFSET, players);
+        for (int slot = 0; slot < tableSize; slot++) buffer.putInt(CARDS_OFFSET + 4 * slot, -1);
+        buffer.putInt(LAYOUT_OFFSET, LAYOUT_VERSION);
+        // the magic is written last: a reader that sees it sees a complete header
+        VarHandle.releaseFence();
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        logger.severe("exporting the game state to " + file + " (" + layout.size + " bytes)");
+    }
+
+    private void begin() {
+        SEQUENCE.setOpaque(buffer, SEQUENCE_OFFSET, ++sequence);
+        VarHandle.storeStoreFence(); // the odd sequence is visible before any change
+    }
+
+    private void end() {
+        buffer.putLong(UPDATED_OFFSET, clock.millis());
+        SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, ++sequence); // the changes are visible before the even sequence
+    }
+
+    private void setCard(int slot, int card) {
+        buffer.putInt(CARDS_OFFSET + 4 * slot, card);
+    }
+
+    private void clearTokens(int slot) {
+        for (int word = 0; word < layout.words; word++) buffer.putLong(layout.tokenOffset(slot, word), 0L);
+    }
+
+    private void setToken(int player, int slot, boolean placed) {
+        int offset = layout.tokenOffset(slot, player >>> 6);
+        long mask = buffer.getLong(offset);
+        buffer.putLong(offset, placed ? mask | 1L << player : mask & ~(1L << player));
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        synchronized (this) {
+            begin();
+            setCard(slot, card);
+            end();
+        }
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        synchronized (this) {
+            begin();
+            setCard(slot, -1);
+            end();
+        }
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        synchronized (this) {
+            begin();
+            for (int i = 0; i < slots.length; i++) setCard(slots[i], cards[i] < 0 ? -1 : cards[i]);
+            end();
+        }
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        synchronized (this) {
+            begin();
+            for (int slot = 0; slot < layout.tableSize; slot++) {
+                setCard(slot, -1);
+                clearTokens(slot);
+            }
+            end();
+        }
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        synchronized (this) {
+            begin();
+            for (int i = 0; i < slots.length; i++) {
+                setCard(slots[i], cards[i] < 0 ? -1 : cards[i]);
+                clearTokens(slots[i]);
+            }
+            end();
+        }
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (this) {
+            begin();
+            setToken(player, slot, true);
+            end();
+        }
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        synchronized (this) {
+            begin();
+            for (int slot = 0; slot < layout.tableSize; slot++) clearTokens(slot);
+            end();
+        }
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (this) {
+            begin();
+            clearTokens(slot);
+            end();
+        }
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (this) {
+            begin();
+            setToken(player, slot, false);
+            end();
+        }
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        synchronized (this) {
+            begin();
+            buffer.putLong(COUNTDOWN_OFFSET, millies).putInt(WARN_OFFSET, warn ? 1 : 0);
+            end();
+        }
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        synchronized (this) {
+            begin();
+            buffer.putInt(layout.scoresOffset + 4 * player, score);
+            end();
+        }
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+
+    /**
+     * Marks the state as closed (the game is over) and closes the file channel. The file is left for the readers; the
+     * writer's mapping stays valid until the buffer is garbage collected (it cannot be unmapped explicitly).
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            begin();
+            buffer.putInt(CLOSED_OFFSET, 1);
+            end();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.severe("cannot close the game state file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package bguspl.set.spectator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A versioned spectator frame: a keyframe (the full state) or a delta. A frame is encoded once and shared by all the
+ * subscribers.
+ * <p>
+ * Encoding (big endian): length (i32, the number of bytes after it), type (u8), version (i64), payload:
+ * <pre>
+ *   KEYFRAME   table size (u16), players (u16), then per slot: card (i16), then per slot: the token bitmask
+ *              (words longs, bit p of word p / 64 is player p), then per player: score (i32), then countdown millis
+ *              (i64), warn (u8)
+ *   CARDS      count (u16), then count times: slot (u16), card (i16, -1 for none)
+ *   TOKENS     slot (u16), the token bitmask of the slot (words longs)
+ *   SCORE      player (u16), score (i32)
+ *   COUNTDOWN  millis (i64), warn (u8)
+ * </pre>
+ * where words = (players + 63) / 64. The versions of a game's frames are consecutive; after a gap, a subscriber must
+ * wait for a keyframe.
+ */
+public final class Frame {
+
+    public static final int KEYFRAME = 1;
+    public static final int CARDS = 2;
+    public static final int TOKENS = 3;
+    public static final int SCORE = 4;
+    public static final int COUNTDOWN = 5;
+
+    /**
+     * The size of the frame header (length, type and version).
+     */
+    public static final int HEADER = 4 + 1 + 8;
+
+    public final long version;
+    public final int type;
+    private final byte[] bytes;
+
+    Frame(long version, int type, byte[] bytes) {
+        this.version = version;
+        this.type = type;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return - a read only view of the encoded frame (header included), positioned at its start.
+     */
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return - the size of the encoded frame in bytes.
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * Allocates a frame buffer with the header filled in, positioned at the start of the payload.
+     */
+    static ByteBuffer allocate(int type, long version, int payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + payload);
+        buffer.putInt(1 + 8 + payload).put((byte) type).putLong(version);
+        return buffer;
+    }
+}
@@ -0,0 +1,300 @@
+package bguspl.set.spectator;
+
+import bguspl.set.Config;
+import bguspl.set.UserInterface;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * The spectator channel: keeps the state spectators see (the cards, the token bitmask of every slot, the scores and
+ * the countdown), and publishes every change as a versioned delta frame, with a keyframe of the whole state every
+ * config.spectatorKeyframeEvery frames (see Frame).
+ * <p>
+ * A frame is encoded once, by the game thread that made the change, into a ring of the latest RING frames. The
+ * in-process listeners are pumped by a spectator thread, each from its own cursor, so the game threads never wait for
+ * a listener; a listener that falls a whole ring behind resyncs from the latest keyframe. Remote spectators are served
+ * by the network server (see GameServer.spectate), which shares the same frames between all its spectator
+ * connections.
+ * <p>
+ * The channel is a user interface decorator: the calls are forwarded to the next user interface.
+ */
+public class SpectatorChannel implements UserInterface, AutoCloseable {
+
+    /**
+     * The number of frames kept in the ring (a power of 2): how far behind a subscriber may fall before it resyncs.
+     */
+    static final int RING = 4096;
+
+    private final UserInterface ui;
+    private final Logger logger;
+    private final int tableSize;
+    private final int players;
+    private final int words;
+    private final int keyframeEvery;
+
+    // the state, guarded by this
+    private final int[] cards;
+    private final long[][] tokens; // [slot][player / 64]
+    private final int[] scores;
+    private long countdown;
+    private boolean warn;
+    private long version;
+    private int sinceKeyframe;
+
+    private final AtomicReferenceArray<Frame> ring = new AtomicReferenceArray<>(RING);
+    private volatile long head = -1; // the version of the last frame published
+    private volatile Frame keyframe; // the last keyframe published
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread spectatorThread;
+    private volatile boolean closed;
+
+    /**
+     * @param ui - the next user interface (null if none).
+     */
+    public SpectatorChannel(UserInterface ui, Config config, Logger logger) {
+        this.ui = ui;
+        this.logger = logger;
+        this.tableSize = config.tableSize;
+        this.players = config.players;
+        this.words = (players + 63) / 64;
+        this.keyframeEvery = Math.max(1, Math.min(config.spectatorKeyframeEvery, RING / 2));
+        cards = new int[tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new long[tableSize][words];
+        scores = new int[players];
+        synchronized (this) {
+            publishKeyframe();
+        }
+        spectatorThread = new Thread(this::pumpLoop, "spectators");
+        spectatorThread.setDaemon(true);
+        spectatorThread.start();
+    }
+
+    // subscribers
+
+    /**
+     * Subscribes an in-process listener (it gets the latest keyframe first).
+     *
+     * @return - an AutoCloseable that unsubscribes the listener.
+     */
+    public AutoCloseable subscribe(SpectatorListener listener) {
+        Subscriber subscriber = new Subscriber.Listener(listener);
+        subscribers.add(subscriber);
+        LockSupport.unpark(spectatorThread);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private void pumpLoop() {
+        while (!closed) {
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.pump(this);
+                } catch (RuntimeException e) {
+                    logger.severe("spectator listener failed: " + e);
+                    subscribers.remove(subscriber);
+                }
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100)); // woken by every publish
+        }
+    }
+
+    /**
+     * @return - the version of the last frame published.
+     */
+    public long head() {
+        return head;
+    }
+
+    /**
+     * @return - the frame of a version, or null if it is not in the ring (not published yet, or overwritten).
+     */
+    public Frame frame(long version) {
+        Frame frame = ring.get((int) (version & (RING - 1)));
+        return frame != null && frame.version == version ? frame : null;
+    }
+
+    /**
+     * @return - the last keyframe published.
+     */
+    public Frame keyframe() {
+        return keyframe;
+    }
+
+    // publishing (the caller holds the lock)
+
+    private void publish(Frame frame) {
+        ring.set((int) (frame.version & (RING - 1)), frame);
+        if (frame.type == Frame.KEYFRAME) keyframe = frame;
+        head = frame.version;
+        LockSupport.unpark(spectatorThread);
+        if (frame.type != Frame.KEYFRAME && ++sinceKeyframe >= keyframeEvery) publishKeyframe();
+    }
+
+    private void publishKeyframe() {
+        sinceKeyframe = 0;
+        ByteBuffer buffer = Frame.allocate(Frame.KEYFRAME, ++version, 4 + 2 * tableSize + 8 * words * tableSize + 4 * players + 9);
+        buffer.putShort((short) tableSize).putShort((short) players);
+        for (int card : cards) buffer.putShort((short) card);
+        for (long[] slot : tokens) for (long word : slot) buffer.putLong(word);
+        for (int score : scores) buffer.putInt(score);
+        buffer.putLong(countdown).put((byte) (warn ? 1 : 0));
+        publish(new Frame(version, Frame.KEYFRAME, buffer.array()));
+    }
+
+    private void publishCards(int[] slots) {
+        ByteBuffer buffer = Frame.allocate(Frame.CARDS, ++version, 2 + 4 * slots.length).putShort((short) slots.length);
+        for (int slot : slots) buffer.putShort((short) slot).putShort((short) cards[slot]);
+        publish(new Frame(version, Frame.CARDS, buffer.array()));
+    }
+
+    private void publishTokens(int slot) {
+        ByteBuffer buffer = Frame.allocate(Frame.TOKENS, ++version, 2 + 8 * words).putShort((short) slot);
+        for (long word : tokens[slot]) buffer.putLong(word);
+        publish(new Frame(version, Frame.TOKENS, buffer.array()));
+    }
+
+    // the user interface
+
+    @Override
+    public void placeCard(int card, int slot) {
+        synchronized (this) {
+            cards[slot] = card;
+            publishCards(new int[]{slot});
+        }
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        synchronized (this) {
+            cards[slot] = -1;
+            publishCards(new int[]{slot});
+        }
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        synchronized (this) {
+            for (int i = 0; i < slots.length; i++) this.cards[slots[i]] = Math.max(cards[i], -1);
+            publishCards(slots);
+        }
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        synchronized (this) {
+            Arrays.fill(cards, -1);
+            for (long[] slot : tokens) Arrays.fill(slot, 0);
+            publishKeyframe();
+        }
+        if (ui != null) ui.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        synchronized (this) {
+            for (int i = 0; i < slots.length; i++) {
+                this.cards[slots[i]] = Math.max(cards[i], -1);
+                Arrays.fill(tokens[slots[i]], 0);
+            }
+            publishCards(slots);
+            for (int slot : slots) publishTokens(slot);
+        }
+        if (ui != null) ui.replaceSlots(slots, cards);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (this) {
+            tokens[slot][player >>> 6] |= 1L << player;
+            publishTokens(slot);
+        }
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        synchronized (this) {
+            for (long[] slot : tokens) Arrays.fill(slot, 0);
+            publishKeyframe();
+        }
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (this) {
+            Arrays.fill(tokens[slot], 0);
+            publishTokens(slot);
+        }
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (this) {
+            tokens[slot][player >>> 6] &= ~(1L << player);
+            publishTokens(slot);
+        }
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        synchronized (this) {
+            countdown = millies;
+            this.warn = warn;
+            ByteBuffer buffer = Frame.allocate(Frame.COUNTDOWN, ++version, 9).putLong(millies).put((byte) (warn ? 1 : 0));
+            publish(new Frame(version, Frame.COUNTDOWN, buffer.array()));
+        }
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        synchronized (this) {
+            scores[player] = score;
+            ByteBuffer buffer = Frame.allocate(Frame.SCORE, ++version, 6).putShort((short) player).putInt(score);
+            publish(new Frame(version, Frame.SCORE, buffer.array()));
+        }
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+
+    /**
+     * Stops the spectator thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(spectatorThread);
+    }
+}
@@ -0,0 +1,53 @@
+package bguspl.set.spectator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * A spectator client: connects to the game server, asks to watch (a WATCH frame, see bguspl.set.net.Protocol),
+ * rebuilds the game state from the spectator frames it gets, and prints a summary once a second.
+ * <p>
+ * Arguments (key=value): host (default localhost), port (default 7777), seconds (default 30).
+ */
+public class SpectatorClient {
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = 7777;
+        double seconds = 30;
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            switch (keyValue[0]) {
+                case "host": host = keyValue[1]; break;
+                case "port": port = Integer.parseInt(keyValue[1]); break;
+                case "seconds": seconds = Double.parseDouble(keyValue[1]); break;
+                default: throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+
+        SpectatorState state = new SpectatorState();
+        ByteBuffer in = ByteBuffer.allocate(1024 * 1024);
+        long end = System.currentTimeMillis() + (long) (seconds * 1000);
+        long nextPrint = System.currentTimeMillis() + 1000;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            ByteBuffer watch = ByteBuffer.allocate(5).putShort((short) 3).put((byte) 3).putShort((short) 0).flip(); // WATCH
+            while (watch.hasRemaining()) channel.write(watch);
+            while (System.currentTimeMillis() < end && channel.read(in) >= 0) {
+                in.flip();
+                while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) state.apply(in);
+                in.compact();
+                if (System.currentTimeMillis() >= nextPrint && state.synced()) {
+                    nextPrint += 1000;
+                    StringBuilder cards = new StringBuilder();
+                    for (int slot = 0; slot < state.tableSize(); slot++) cards.append(' ').append(state.card(slot));
+                    System.out.printf("version %d, frames %d, gaps %d, countdown %d, scores %s, cards%s%n",
+                            state.version(), state.frames(), state.gaps(), state.countdown(),
+                            Arrays.toString(state.scores()), cards);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package bguspl.set.spectator;
+
+/**
+ * An in-process spectator (see SpectatorChannel.subscribe). It is called by the spectator thread, in version order,
+ * and should return quickly (a listener that falls too far behind skips to the next keyframe).
+ */
+@FunctionalInterface
+public interface SpectatorListener {
+
+    /**
+     * @param frame - the next frame (a keyframe first, and after every resync).
+     */
+    void onFrame(Frame frame);
+}
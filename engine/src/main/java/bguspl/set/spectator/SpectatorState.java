@@ -0,0 +1,141 @@
+package bguspl.set.spectator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A spectator's copy of the game state, rebuilt from the frames of a SpectatorChannel (see Frame for the encoding).
+ * Until the first keyframe, and after a version gap, the deltas are ignored until the next keyframe.
+ */
+public class SpectatorState {
+
+    private int[] cards = new int[0];
+    private long[][] tokens = new long[0][];
+    private int[] scores = new int[0];
+    private long countdown;
+    private boolean warn;
+    private long version = -1;
+    private boolean synced;
+    private long gaps;
+    private long frames;
+
+    /**
+     * Applies a frame.
+     *
+     * @param buffer - the frame, header included, positioned at its start (the position is moved past it).
+     */
+    public void apply(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+        int type = buffer.get();
+        long frameVersion = buffer.getLong();
+        frames++;
+        if (type == Frame.KEYFRAME) {
+            int tableSize = buffer.getShort();
+            int players = buffer.getShort();
+            int words = (players + 63) / 64;
+            cards = new int[tableSize];
+            for (int slot = 0; slot < tableSize; slot++) cards[slot] = buffer.getShort();
+            tokens = new long[tableSize][words];
+            for (long[] slot : tokens) for (int w = 0; w < words; w++) slot[w] = buffer.getLong();
+            scores = new int[players];
+            for (int player = 0; player < players; player++) scores[player] = buffer.getInt();
+            countdown = buffer.getLong();
+            warn = buffer.get() != 0;
+            synced = true;
+        } else if (synced && frameVersion != version + 1) {
+            synced = false;
+            gaps++;
+        } else if (synced) {
+            switch (type) {
+                case Frame.CARDS:
+                    for (int count = buffer.getShort(); count > 0; count--) {
+                        int slot = buffer.getShort();
+                        cards[slot] = buffer.getShort();
+                    }
+                    break;
+                case Frame.TOKENS:
+                    long[] slot = tokens[buffer.getShort()];
+                    for (int w = 0; w < slot.length; w++) slot[w] = buffer.getLong();
+                    break;
+                case Frame.SCORE:
+                    int player = buffer.getShort();
+                    scores[player] = buffer.getInt();
+                    break;
+                case Frame.COUNTDOWN:
+                    countdown = buffer.getLong();
+                    warn = buffer.get() != 0;
+                    break;
+                default: // unknown frames are skipped
+            }
+        }
+        version = frameVersion;
+        buffer.position(end);
+    }
+
+    /**
+     * @return - true iff the state is complete (a keyframe was applied, and no frame was missed since).
+     */
+    public boolean synced() {
+        return synced;
+    }
+
+    /**
+     * @return - the version of the last frame applied.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return - the number of version gaps seen.
+     */
+    public long gaps() {
+        return gaps;
+    }
+
+    /**
+     * @return - the number of frames applied.
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * @return - the card in a slot, or -1 if none.
+     */
+    public int card(int slot) {
+        return cards[slot];
+    }
+
+    /**
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens[slot][player >>> 6] & 1L << player) != 0;
+    }
+
+    public int score(int player) {
+        return scores[player];
+    }
+
+    public int[] scores() {
+        return Arrays.copyOf(scores, scores.length);
+    }
+
+    public long countdown() {
+        return countdown;
+    }
+
+    public boolean warn() {
+        return warn;
+    }
+
+    public int tableSize() {
+        return cards.length;
+    }
+
+    public int players() {
+        return scores.length;
+    }
+}
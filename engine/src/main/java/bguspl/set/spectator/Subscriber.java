@@ -0,0 +1,59 @@
+package bguspl.set.spectator;
+
+/**
+ * A subscriber of a SpectatorChannel: a cursor into the channel's ring of frames, pumped by the spectator thread.
+ * A subscriber that falls a whole ring behind (or starts) skips to the latest keyframe.
+ */
+abstract class Subscriber {
+
+    /**
+     * The version of the next frame to deliver.
+     */
+    private long cursor;
+    private boolean resync = true;
+    long resyncs;
+
+    /**
+     * Delivers the frames published since the last pump.
+     */
+    final void pump(SpectatorChannel channel) {
+        while (true) {
+            if (resync) {
+                Frame keyframe = channel.keyframe();
+                if (keyframe == null) return;
+                deliver(keyframe);
+                cursor = keyframe.version + 1;
+                resync = false;
+                continue;
+            }
+            if (cursor > channel.head()) return;
+            Frame frame = channel.frame(cursor);
+            if (frame == null) { // overwritten: too slow
+                resync = true;
+                resyncs++;
+                continue;
+            }
+            deliver(frame);
+            cursor++;
+        }
+    }
+
+    abstract void deliver(Frame frame);
+
+    /**
+     * An in-process listener.
+     */
+    static final class Listener extends Subscriber {
+
+        private final SpectatorListener listener;
+
+        Listener(SpectatorListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        void deliver(Frame frame) {
+            listener.onFrame(frame);
+        }
+    }
+}
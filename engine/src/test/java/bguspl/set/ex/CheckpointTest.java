@@ -0,0 +1,84 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+
+    private static final int DECK = 81;
+    private static final int TABLE = 12;
+    private static final int PLAYERS = 3;
+
+    /**
+     * A game in progress: 6 cards on the table (one slot of each pair), the rest of the first 40 cards in the deck,
+     * and tokens, scores and freezes for every player.
+     */
+    private static Checkpoint sample() {
+        Checkpoint checkpoint = new Checkpoint(DECK, TABLE, PLAYERS, 41_250);
+        for (int slot = 0; slot < TABLE; slot++) checkpoint.slotToCard[slot] = slot % 2 == 0 ? 30 + slot : -1;
+        for (int card = 0; card < 30; card++) Checkpoint.set(checkpoint.deck, card);
+        Checkpoint.set(checkpoint.tokens[0], 0);
+        Checkpoint.set(checkpoint.tokens[0], 10);
+        Checkpoint.set(checkpoint.tokens[2], 2);
+        Checkpoint.set(checkpoint.tokens[2], 4);
+        Checkpoint.set(checkpoint.tokens[2], 6);
+        checkpoint.scores[0] = 4;
+        checkpoint.scores[2] = 7;
+        checkpoint.freezeMillis[1] = 2_500;
+        return checkpoint;
+    }
+
+    private static ByteBuffer encode(Checkpoint checkpoint) {
+        ByteBuffer buffer = ByteBuffer.allocate(checkpoint.maxSize());
+        checkpoint.encode(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    void roundTripKeepsTheResumedState() throws IOException {
+        Checkpoint written = sample();
+        ByteBuffer buffer = encode(written);
+        Checkpoint read = Checkpoint.decode(buffer);
+
+        assertEquals(0, buffer.remaining());
+        assertEquals(written.remainingMillis(), read.remainingMillis());
+        assertEquals(written.deck(), read.deck());
+        assertArrayEquals(written.slotToCard, read.slotToCard);
+        assertArrayEquals(written.tokens, read.tokens);
+        assertArrayEquals(written.scores, read.scores);
+        assertArrayEquals(written.freezeMillis, read.freezeMillis);
+        assertEquals(6, read.tableCards());
+        assertEquals(30, read.deckCards());
+    }
+
+    @Test
+    void rejectsATokenOnAnEmptySlot() {
+        Checkpoint checkpoint = sample();
+        Checkpoint.set(checkpoint.tokens[1], 3);
+        IOException e = assertThrows(IOException.class, () -> Checkpoint.decode(encode(checkpoint)));
+        assertEquals("invalid token of player 1 in slot 3", e.getMessage());
+    }
+
+    @Test
+    void rejectsATokenBeyondTheTable() {
+        Checkpoint checkpoint = sample();
+        Checkpoint.set(checkpoint.tokens[2], TABLE + 1);
+        IOException e = assertThrows(IOException.class, () -> Checkpoint.decode(encode(checkpoint)));
+        assertEquals("invalid token of player 2 in slot " + (TABLE + 1), e.getMessage());
+    }
+
+    @Test
+    void rejectsACardBeyondTheDeck() {
+        Checkpoint checkpoint = sample();
+        Checkpoint.set(checkpoint.deck, DECK + 2);
+        IOException e = assertThrows(IOException.class, () -> Checkpoint.decode(encode(checkpoint)));
+        assertEquals("invalid card " + (DECK + 2), e.getMessage());
+    }
+}
@@ -0,0 +1,127 @@
+package bguspl.set.shm;
+
+import bguspl.set.Clock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedStateTest {
+
+    private static final int TABLE = 12;
+    private static final int PLAYERS = 4;
+    private static final int CHANGES = 200_000;
+
+    /**
+     * A clock whose time is set by the test.
+     */
+    private static class ManualClock implements Clock {
+        volatile long now;
+
+        @Override
+        public long millis() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long millis) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void await(Object monitor, long millis) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void signal(Object monitor) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static Logger silentLogger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        return logger;
+    }
+
+    @Test
+    void changesAreStampedWithTheGameClock(@TempDir Path dir) throws Exception {
+        ManualClock clock = new ManualClock();
+        Path file = dir.resolve("state");
+        SharedStateWriter writer = new SharedStateWriter(null, file, TABLE, PLAYERS, clock, silentLogger());
+        try (SharedStateReader reader = new SharedStateReader(file)) {
+            clock.now = 1234;
+            writer.setScore(2, 5);
+            SharedStateReader.Snapshot snapshot = reader.read();
+            assertEquals(1234, snapshot.updated);
+            assertEquals(5, snapshot.scores[2]);
+            assertEquals(1, snapshot.version);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * The writer fills the whole table with the same card in every change, and stamps the change with a time from
+     * which the card follows; a reader running alongside must never see two different cards, or a card that does not
+     * match the time of the change.
+     */
+    @Test
+    void concurrentReaderNeverSeesATornSnapshot(@TempDir Path dir) throws Exception {
+        ManualClock clock = new ManualClock();
+        Path file = dir.resolve("state");
+        SharedStateWriter writer = new SharedStateWriter(null, file, TABLE, PLAYERS, clock, silentLogger());
+        int[] slots = new int[TABLE];
+        Arrays.setAll(slots, slot -> slot);
+        int[] cards = new int[TABLE];
+
+        try (SharedStateReader reader = new SharedStateReader(file)) {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<String> torn = new AtomicReference<>();
+            long[] reads = new long[1];
+            Thread readerThread = new Thread(() -> {
+                SharedStateReader.Snapshot snapshot = reader.newSnapshot();
+                long lastVersion = -1;
+                while (!done.get() && torn.get() == null) {
+                    reader.read(snapshot);
+                    reads[0]++;
+                    if (snapshot.version < lastVersion)
+                        torn.set("version went back from " + lastVersion + " to " + snapshot.version);
+                    lastVersion = snapshot.version;
+                    if (snapshot.version == 0) continue; // the initial state, before the first change
+                    int expected = (int) (snapshot.updated % 81);
+                    for (int card : snapshot.cards)
+                        if (card != expected)
+                            torn.set("version " + snapshot.version + " at time " + snapshot.updated + " has cards "
+                                    + Arrays.toString(snapshot.cards));
+                }
+            }, "shared-state-reader");
+            readerThread.start();
+
+            for (int change = 1; change <= CHANGES && torn.get() == null; change++) {
+                clock.now = change;
+                Arrays.fill(cards, change % 81);
+                writer.placeCards(cards, slots);
+            }
+            done.set(true);
+            readerThread.join();
+
+            assertNull(torn.get());
+            assertTrue(reads[0] > 0);
+            SharedStateReader.Snapshot last = reader.read();
+            assertEquals(CHANGES, last.version);
+            assertEquals(CHANGES, last.updated);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -1,188 +0,0 @@
-package bguspl.set.ex;
-
-import bguspl.set.Env;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.concurrent.locks.ReentrantLock;
-
-/**
- * This class contains the data that is visible to the player.
- *
- * @inv slotToCard[x] == y iff cardToSlot[y] == x
- */
-public class Table {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Mapping between a slot and the card placed in it (null if none).
-     */
-    protected final Integer[] slotToCard; // card per slot (if any)
-
-    /**
-     * Mapping between a card and the slot it is in (null if none).
-     */
-    protected final Integer[] cardToSlot; // slot per card (if any)
-    /**
-     * which players tokens are in every slot (null if none)
-     */
-    protected ArrayList<Player>[] tokens;
-
-    // protected Object[] arrayLock;
-    //public ReentrantLock lockTable = new ReentrantLock();
-
-    /**
-     * Constructor for testing.
-     *
-     * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if
-     *                   none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if
-     *                   none).
-     */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
-
-        this.env = env;
-        this.slotToCard = slotToCard;
-        this.cardToSlot = cardToSlot;
-        tokens = new ArrayList[env.config.tableSize];
-        for (int i = 0; i < env.config.tableSize; i++) {
-            tokens[i] = new ArrayList<Player>();
-        }
-        // arrayLock = new Object[];
-
-    }
-
-    /**
-     * Constructor for actual usage.
-     *
-     * @param env - the game environment objects.
-     */
-    public Table(Env env) {
-
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
-    }
-
-    /**
-     * This method prints all possible legal sets of cards that are currently on the
-     * table.
-     */
-    public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
-                    .collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(
-                    sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
-    }
-
-    /**
-     * Count the number of cards currently on the table.
-     *
-     * @return - the number of cards on the table.
-     */
-    public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
-    }
-
-    /**
-     * Places a card on the table in a grid slot.
-     * 
-     * @param card - the card id to place in the slot.
-     * @param slot - the slot in which the card should be placed.
-     *
-     * @post - the card placed is on the table, in the assigned slot.
-     */
-    public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-        env.ui.placeCard(card, slot);
-    }
-
-    /**
-     * Removes a card from a grid slot on the table.
-     * 
-     * @param slot - the slot from which to remove the card.
-     */
-    public synchronized void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-
-        // TODO implement
-        synchronized (tokens) {
-            int cardToRemove = slotToCard[slot];
-            cardToSlot[cardToRemove] = null;
-            slotToCard[slot] = null;
-            // remove all tokens from this card
-            while (!tokens[slot].isEmpty())
-            {
-                    Player p = tokens[slot].remove(0);
-                    synchronized (p.getSet()) {
-                        p.setCurrSet(slot);
-                    }
-            }
-            env.ui.removeTokens(slot);
-            env.ui.removeCard(slot);
-        }
-    }
-
-    /**
-     * Places a player token on a grid slot.
-     * 
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot on which to place the token.
-     */
-    public void placeToken(Player player, int slot) {
-        synchronized (tokens) {
-            tokens[slot].add(player);
-            synchronized(player.getSet())
-            {
-                player.currSet.add(slot);
-            }
-            env.ui.placeToken(player.id, slot);
-        }
-    }
-
-    /**
-     * Removes a token of a player from a grid slot.
-     * 
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot from which to remove the token.
-     * @return - true iff a token was successfully removed.
-     */
-    public boolean removeToken(Player player, int slot) {
-        // TODO implement
-        synchronized (tokens) {
-            if (tokens[slot].contains(player)) {
-                tokens[slot].remove(player);
-                synchronized(player.getSet())
-                {
-                    player.setCurrSet(slot);
-                }
-                env.ui.removeToken(player.id, slot);
-                return true;
-            }
-            return false;
-        }
-    }
-
-}
\ No newline at end of file
@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import static bguspl.set.UserInterfaceSwing.intInBaseToPaddedString;
+
+/**
+ * Loads the card images for the Swing user interface in the background.
+ * The png files are read in parallel right away and each card is decoded the first time it is drawn; until then the
+ * empty card is drawn instead. Optionally, all the decoded cards are packed into a single atlas file of pre-scaled
+ * raw pixels, which is memory-mapped on the next startup instead of decoding the png files again.
+ */
+class CardImages implements CardSource {
+
+    /**
+     * Atlas file header: magic, featureCount, featureSize, deckSize, width, height.
+     */
+    private static final int ATLAS_MAGIC = 0x53455441; // "SETA"
+    private static final int ATLAS_HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final Config config;
+    private final Logger logger;
+    private final Runnable onCardReady;
+    private final long startNanos;
+
+    private final Image emptyCard;
+    private final AtomicReferenceArray<byte[]> encoded;
+    private final AtomicReferenceArray<Image> decoded;
+    private final AtomicInteger pending;
+    private final AtomicInteger failed = new AtomicInteger();
+    private final boolean[] decoding;
+    private final ExecutorService loader;
+
+    /**
+     * The mapped atlas pixels (null if there is no valid atlas file).
+     */
+    private IntBuffer atlas;
+
+    /**
+     * @param onCardReady - called (from a loader thread) whenever a card that was requested becomes ready to draw.
+     */
+    CardImages(Config config, Logger logger, Runnable onCardReady) {
+        this.config = config;
+        this.logger = logger;
+        this.onCardReady = onCardReady;
+        this.startNanos = System.nanoTime();
+
+        encoded = new AtomicReferenceArray<>(config.deckSize);
+        decoded = new AtomicReferenceArray<>(config.deckSize);
+        pending = new AtomicInteger(config.deckSize);
+        decoding = new boolean[config.deckSize];
+        loader = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "card-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        emptyCard = scale(decode(readResource("cards/empty_card.png")));
+
+        if (!config.cardAtlasFile.isEmpty()) atlas = mapAtlas(Paths.get(config.cardAtlasFile));
+        if (atlas != null) {
+            logger.info("card atlas " + config.cardAtlasFile + " mapped in " + elapsedMillis() + " ms.");
+            loader.shutdown();
+        } else {
+            for (int i = 0; i < config.deckSize; ++i) {
+                final int card = i;
+                loader.execute(() -> read(card));
+            }
+        }
+    }
+
+    /**
+     * Returns the image of a card, or the empty card if it is not ready yet (in which case it will be decoded in the
+     * background and onCardReady will be called when it is).
+     *
+     * @param card - the card id (negative for the empty card).
+     * @return - the image to draw.
+     */
+    @Override
+    public Image get(int card) {
+        if (card < 0) return emptyCard;
+        Image image = decoded.get(card);
+        if (image != null) return image;
+
+        if (atlas != null) {
+            image = fromAtlas(card);
+            decoded.set(card, image);
+            return image;
+        }
+        requestDecode(card);
+        return emptyCard;
+    }
+
+    /**
+     * Shuts down the loader threads.
+     */
+    @Override
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    private void read(int card) {
+        try {
+            byte[] bytes = readResource("cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png");
+            boolean requested;
+            synchronized (decoding) {
+                encoded.set(card, bytes);
+                requested = decoding[card];
+            }
+            if (requested || !config.cardAtlasFile.isEmpty()) decode(card); // the atlas needs every card decoded
+            if (requested) onCardReady.run();
+        } catch (RuntimeException e) { // the card stays drawn as the empty card
+            failed.incrementAndGet();
+            logger.severe("cannot load the image of card " + card + ": " + e);
+        }
+        if (pending.decrementAndGet() == 0) allCardsRead();
+    }
+
+    private void requestDecode(int card) {
+        synchronized (decoding) {
+            if (decoding[card]) return;
+            decoding[card] = true;
+            if (encoded.get(card) == null) return; // still being read, it will be decoded right after
+        }
+        loader.execute(() -> {
+            try {
+                decode(card);
+                onCardReady.run();
+            } catch (RuntimeException e) {
+                logger.severe("cannot decode the image of card " + card + ": " + e);
+            }
+        });
+    }
+
+    private void decode(int card) {
+        if (decoded.get(card) == null) decoded.compareAndSet(card, null, scale(decode(encoded.get(card))));
+    }
+
+    private void allCardsRead() {
+        logger.info("card images read in " + elapsedMillis() + " ms.");
+        if (failed.get() > 0)
+            logger.severe(failed.get() + " card images could not be loaded" + (config.cardAtlasFile.isEmpty() ? "." : ", the card atlas is not written."));
+        else if (!config.cardAtlasFile.isEmpty()) writeAtlas(Paths.get(config.cardAtlasFile));
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    private byte[] readResource(String filename) {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(filename)) {
+            if (is == null) throw new FileNotFoundException(filename);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            for (int n; (n = is.read(buffer)) > 0; ) bytes.write(buffer, 0, n);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage decode(byte[] bytes) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Converts an image to a cell sized int ARGB image (the fastest format to draw and to copy to/from the atlas).
+     */
+    private BufferedImage scale(BufferedImage image) {
+        BufferedImage scaled = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, config.cellWidth, config.cellHeight, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private IntBuffer mapAtlas(Path path) {
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long expected = ATLAS_HEADER_BYTES + (long) config.deckSize * config.cellWidth * config.cellHeight * Integer.BYTES;
+            if (channel.size() != expected) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expected);
+            if (buffer.getInt() != ATLAS_MAGIC || buffer.getInt() != config.featureCount
+                    || buffer.getInt() != config.featureSize || buffer.getInt() != config.deckSize
+                    || buffer.getInt() != config.cellWidth || buffer.getInt() != config.cellHeight) {
+                logger.severe("card atlas " + path + " does not match the configuration, it will be rebuilt.");
+                return null;
+            }
+            return buffer.slice().asIntBuffer();
+        } catch (IOException e) {
+            logger.severe("cannot map card atlas " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private BufferedImage fromAtlas(int card) {
+        BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        IntBuffer source = atlas.duplicate();
+        source.position(card * pixels.length);
+        source.get(pixels);
+        return image;
+    }
+
+    /**
+     * Writes the atlas to a temporary file and then moves it over the atlas file, so a crash while writing never
+     * leaves a partial atlas behind.
+     */
+    private void writeAtlas(Path path) {
+        int cardPixels = config.cellWidth * config.cellHeight;
+        Path temporary = path.toAbsolutePath().resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(ATLAS_HEADER_BYTES);
+                header.putInt(ATLAS_MAGIC).putInt(config.featureCount).putInt(config.featureSize)
+                        .putInt(config.deckSize).putInt(config.cellWidth).putInt(config.cellHeight).flip();
+                while (header.hasRemaining()) channel.write(header);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(cardPixels * Integer.BYTES);
+                for (int card = 0; card < config.deckSize; card++) {
+                    BufferedImage image = (BufferedImage) decoded.get(card);
+                    buffer.clear();
+                    buffer.asIntBuffer().put(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, cardPixels);
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("card atlas written to " + path + " in " + elapsedMillis() + " ms.");
+        } catch (IOException | ClassCastException e) {
+            logger.severe("cannot write card atlas " + path + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws the cards procedurally from their features instead of loading an image per card, so any FeatureSize and
+ * FeatureCount can be displayed. The features are mapped to glyph attributes:
+ * 0 - number of glyphs, 1 - colour, 2 - shape, 3 - shading, 4 - outline thickness, 5 - rotation and any further
+ * feature to a background tint. Rendered cards are kept in a bounded LRU cache keyed by card id and cell size, so the
+ * memory used does not depend on the deck size.
+ */
+class CardRenderer implements CardSource {
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color BORDER = new Color(200, 200, 200);
+
+    private final Config config;
+    private final Util util;
+    private final Map<Long, Image> cache;
+    private final Image emptyCard;
+
+    CardRenderer(Config config, Util util) {
+        this.config = config;
+        this.util = util;
+        this.cache = new LinkedHashMap<Long, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+                return size() > config.cardCacheSize;
+            }
+        };
+        this.emptyCard = render(null, config.cellWidth, config.cellHeight);
+    }
+
+    @Override
+    public synchronized Image get(int card) {
+        if (card < 0) return emptyCard;
+        long key = (long) card << 32 | (long) config.cellWidth << 16 | config.cellHeight;
+        Image image = cache.get(key);
+        if (image == null) {
+            image = render(util.cardToFeatures(card), config.cellWidth, config.cellHeight);
+            cache.put(key, image);
+        }
+        return image;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        cache.clear();
+    }
+
+    private int feature(int[] features, int index) {
+        return index < features.length ? features[index] : 0;
+    }
+
+    private BufferedImage render(int[] features, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // card background (extra features tint it)
+        Color background = BACKGROUND;
+        if (features != null && features.length > 6) {
+            float tint = 0f;
+            for (int i = 6; i < features.length; i++) tint = tint * config.featureSize + features[i];
+            float range = (float) Math.pow(config.featureSize, features.length - 6);
+            background = Color.getHSBColor(tint / range, 0.12f, 1f);
+        }
+        RoundRectangle2D.Float card = new RoundRectangle2D.Float(4, 4, width - 8, height - 8, 20, 20);
+        g.setColor(background);
+        g.fill(card);
+        g.setColor(BORDER);
+        g.draw(card);
+
+        if (features != null) {
+            int count = feature(features, 0) + 1;
+            Color color = Color.getHSBColor((float) feature(features, 1) / config.featureSize, 0.85f, 0.8f);
+            int shape = feature(features, 2);
+            int shading = feature(features, 3);
+            float stroke = 2f + 6f * feature(features, 4) / config.featureSize;
+            double rotation = Math.PI * feature(features, 5) / Math.max(1, config.featureSize);
+
+            // lay the glyphs out in a single row, or in a grid when there are too many of them
+            int columns = (int) Math.ceil(Math.sqrt(count * (double) width / height));
+            columns = Math.max(1, Math.min(count, columns));
+            int rows = (count + columns - 1) / columns;
+            double cellW = (width - 16.0) / columns;
+            double cellH = (height - 16.0) / rows;
+            double glyphW = cellW * 0.8;
+            double glyphH = Math.min(cellH * 0.8, glyphW * 2);
+
+            for (int i = 0; i < count; i++) {
+                double cx = 8 + cellW * (i % columns + 0.5);
+                double cy = 8 + cellH * (i / columns + 0.5);
+                Shape glyph = glyph(shape, glyphW, glyphH);
+                AffineTransform transform = AffineTransform.getTranslateInstance(cx, cy);
+                transform.rotate(rotation);
+                drawGlyph(g, transform.createTransformedShape(glyph), color, shading, stroke);
+            }
+        }
+
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Creates a glyph outline centered around (0, 0). The first shapes are the classic ones, the rest are regular
+     * polygons with an increasing number of sides: a triangle, then 5 sides and up (4 sides would be the diamond).
+     */
+    private Shape glyph(int shape, double w, double h) {
+        switch (shape) {
+            case 0: // squiggle
+                GeneralPath squiggle = new GeneralPath();
+                squiggle.moveTo(-w / 2, h / 4);
+                squiggle.curveTo(-w / 2, -h / 2, 0, -h / 2, w / 6, -h / 4);
+                squiggle.curveTo(w / 3, -h / 8, w / 2, -h / 2, w / 2, -h / 4);
+                squiggle.curveTo(w / 2, h / 2, 0, h / 2, -w / 6, h / 4);
+                squiggle.curveTo(-w / 3, h / 8, -w / 2, h / 2, -w / 2, h / 4);
+                squiggle.closePath();
+                return squiggle;
+            case 1: // diamond
+                return polygon(4, w, h, 0);
+            case 2: // oval
+                return new Ellipse2D.Double(-w / 2, -h / 2, w, h);
+            case 3: // triangle
+                return polygon(3, w, h, -Math.PI / 2);
+            default:
+                return polygon(shape + 1, w, h, -Math.PI / 2);
+        }
+    }
+
+    private Shape polygon(int sides, double w, double h, double phase) {
+        Path2D.Double polygon = new Path2D.Double();
+        for (int i = 0; i < sides; i++) {
+            double angle = phase + 2 * Math.PI * i / sides;
+            double x = Math.cos(angle) * w / 2;
+            double y = Math.sin(angle) * h / 2;
+            if (i == 0) polygon.moveTo(x, y);
+            else polygon.lineTo(x, y);
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    /**
+     * Shading: 0 - full, 1 - striped, 2 - empty, higher values - striped with decreasing density.
+     */
+    private void drawGlyph(Graphics2D g, Shape glyph, Color color, int shading, float stroke) {
+        g.setColor(color);
+        if (shading == 0) {
+            g.fill(glyph);
+        } else if (shading != 2) {
+            Shape clip = g.getClip();
+            g.clip(glyph);
+            Rectangle bounds = glyph.getBounds();
+            int gap = 4 + 3 * Math.max(0, shading - 2);
+            g.setStroke(new BasicStroke(1f));
+            for (int x = bounds.x; x <= bounds.x + bounds.width; x += gap)
+                g.drawLine(x, bounds.y, x, bounds.y + bounds.height);
+            g.setClip(clip);
+        }
+        g.setStroke(new BasicStroke(stroke));
+        g.draw(glyph);
+    }
+}
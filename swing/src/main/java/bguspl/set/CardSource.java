@@ -0,0 +1,22 @@
+package bguspl.set;
+
+import java.awt.*;
+
+/**
+ * Provides the images the Swing user interface draws for the cards.
+ */
+interface CardSource {
+
+    /**
+     * Returns the image of a card.
+     *
+     * @param card - the card id (negative for the empty card).
+     * @return - a cell sized image to draw.
+     */
+    Image get(int card);
+
+    /**
+     * Releases the resources held by the source.
+     */
+    void dispose();
+}
@@ -1,10 +1,9 @@
 package bguspl.set;
 
-import bguspl.set.ex.Player;
-
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -13,13 +12,13 @@ import java.util.logging.Logger;
 class InputManager extends KeyAdapter {
 
     private static final int MAX_KEY_CODE = 255;
-    private final Player[] players;
+    private final KeyInput input;
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
     private final Logger logger;
 
-    public InputManager(Logger logger, Config config, Player[] players) {
-        this.players = players;
+    public InputManager(Logger logger, Config config, KeyInput input) {
+        this.input = input;
         this.logger = logger;
 
         // initialize the keys
@@ -40,11 +39,13 @@ class InputManager extends KeyAdapter {
     @Override
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
+        long received = System.nanoTime();
         int keyCode = e.getKeyCode();
         int player = keyMap[keyCode] - 1;
         if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "key {0,number,#} was pressed by player {1,number,#}", new Object[]{keyCode, player + 1});
+            input.keyPressed(player, keyToSlot[keyCode], received);
         }
     }
 }
@@ -0,0 +1,179 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A scoreboard for games with many players: a custom painted, scrollable list that only paints the rows inside the
+ * visible part of the viewport. The focused players (the human players) are pinned at the top, followed by the top
+ * players ordered by score. The order is kept sorted incrementally: a score change only moves the changed player
+ * up or down the order, so an update costs O(distance moved) instead of a full sort and relayout.
+ */
+class ScoreboardPanel extends JScrollPane {
+
+    private static final Color PINNED = new Color(235, 235, 250);
+
+    private final Config config;
+    private final Rows rows;
+
+    private final int[] scores;
+    private final long[] freezes;
+
+    /**
+     * order[i] is the player at rank i, rank[player] is the position of the player in order.
+     */
+    private final int[] order;
+    private final int[] rank;
+
+    /**
+     * The pinned players (shown above the ranking).
+     */
+    private final int[] focused;
+
+    /**
+     * The number of ranked rows shown (all players if config.scoreboardTopN <= 0).
+     */
+    private final int ranked;
+
+    ScoreboardPanel(Config config) {
+        this.config = config;
+        scores = new int[config.players];
+        freezes = new long[config.players];
+        order = new int[config.players];
+        rank = new int[config.players];
+        for (int i = 0; i < config.players; i++) {
+            order[i] = i;
+            rank[i] = i;
+        }
+        focused = new int[config.humanPlayers];
+        for (int i = 0; i < focused.length; i++) focused[i] = i;
+        ranked = config.scoreboardTopN > 0 ? Math.min(config.scoreboardTopN, config.players) : config.players;
+
+        rows = new Rows();
+        setViewportView(rows);
+        setVerticalScrollBarPolicy(VERTICAL_SCROLLBAR_AS_NEEDED);
+        setHorizontalScrollBarPolicy(HORIZONTAL_SCROLLBAR_NEVER);
+        getVerticalScrollBar().setUnitIncrement(config.playerCellHeight);
+        int width = Math.max(config.columns * config.cellWidth, config.playerCellWidth);
+        setPreferredSize(new Dimension(width, Math.min(rowCount(), config.rows * 2) * config.playerCellHeight + 4));
+    }
+
+    void setScore(int player, int score) {
+        int before = rank[player];
+        scores[player] = score;
+        int position = before;
+        while (position > 0 && before(player, order[position - 1])) swap(position, --position);
+        while (position < order.length - 1 && before(order[position + 1], player)) swap(position, ++position);
+        repaintRanks(Math.min(before, position), Math.max(before, position));
+        repaintFocused(player);
+    }
+
+    void setFreeze(int player, long millies) {
+        freezes[player] = millies;
+        repaintRanks(rank[player], rank[player]);
+        repaintFocused(player);
+    }
+
+    /**
+     * @return - true iff player a should be ranked above player b.
+     */
+    private boolean before(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private void swap(int i, int j) {
+        int player = order[i];
+        order[i] = order[j];
+        order[j] = player;
+        rank[order[i]] = i;
+        rank[order[j]] = j;
+    }
+
+    private int rowCount() {
+        return focused.length + ranked;
+    }
+
+    private void repaintRanks(int from, int to) {
+        if (from >= ranked) return;
+        int h = config.playerCellHeight;
+        rows.repaint(0, (focused.length + from) * h, rows.getWidth(), (Math.min(to, ranked - 1) - from + 1) * h);
+    }
+
+    private void repaintFocused(int player) {
+        if (player < focused.length)
+            rows.repaint(0, player * config.playerCellHeight, rows.getWidth(), config.playerCellHeight);
+    }
+
+    /**
+     * The scrolled component, paints only the rows intersecting the clip.
+     */
+    private class Rows extends JComponent implements Scrollable {
+
+        private final Font nameFont = new Font("Serif", Font.BOLD, Math.max(10, config.playerCellHeight * 3 / 5));
+        private final Font scoreFont = nameFont.deriveFont(Font.PLAIN);
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(ScoreboardPanel.this.getPreferredSize().width - 4, rowCount() * config.playerCellHeight);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            int h = config.playerCellHeight;
+            int first = Math.max(0, clip.y / h);
+            int last = Math.min(rowCount() - 1, (clip.y + clip.height) / h);
+            FontMetrics metrics = g.getFontMetrics(nameFont);
+            int baseline = (h + metrics.getAscent() - metrics.getDescent()) / 2;
+
+            g.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            for (int row = first; row <= last; row++) {
+                boolean pinned = row < focused.length;
+                int player = pinned ? focused[row] : order[row - focused.length];
+                int y = row * h;
+                if (pinned) {
+                    g.setColor(PINNED);
+                    g.fillRect(0, y, getWidth(), h);
+                }
+                long freeze = freezes[player];
+                g.setFont(nameFont);
+                g.setColor(freeze > 0 ? Color.RED : Color.BLACK);
+                String name = (rank[player] + 1) + ". " + config.playerNames[player];
+                if (freeze > 0) name += " (" + freeze / 1000 + ")";
+                g.drawString(name, 8, y + baseline);
+                g.setFont(scoreFont);
+                g.setColor(Color.BLACK);
+                String score = Integer.toString(scores[player]);
+                g.drawString(score, getWidth() - 8 - g.getFontMetrics().stringWidth(score), y + baseline);
+                g.setColor(Color.LIGHT_GRAY);
+                g.drawLine(0, y + h - 1, getWidth(), y + h - 1);
+            }
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return config.playerCellHeight;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return Math.max(config.playerCellHeight, visibleRect.height - config.playerCellHeight);
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+    }
+}
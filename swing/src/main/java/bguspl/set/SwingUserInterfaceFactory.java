@@ -0,0 +1,14 @@
+package bguspl.set;
+
+import java.util.logging.Logger;
+
+/**
+ * Creates the Swing user interface (registered as a UserInterfaceFactory service).
+ */
+public class SwingUserInterfaceFactory implements UserInterfaceFactory {
+
+    @Override
+    public UserInterface create(Logger logger, Config config, Util util, KeyInput input) {
+        return new UserInterfaceDispatcher(new UserInterfaceSwing(logger, config, util, input), config);
+    }
+}
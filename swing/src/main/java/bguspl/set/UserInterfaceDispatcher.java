@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouples the game threads from Swing: every call only records the latest value of the affected ui element in a
+ * lock-free buffer, and a single timer on the event dispatch thread flushes the changed elements once per frame.
+ * Several updates to the same element within one frame collapse into one Swing update.
+ */
+public class UserInterfaceDispatcher implements UserInterface {
+
+    /**
+     * Marks a buffer entry that has no pending update.
+     */
+    private static final long CLEAN = Long.MIN_VALUE;
+    private static final int CLEAN_SLOT = Integer.MIN_VALUE;
+    private static final int EMPTY_SLOT = -1;
+
+    private final UserInterfaceSwing ui;
+    private final Config config;
+    private final Timer timer;
+
+    /**
+     * Latest-value buffers (CLEAN if nothing changed since the last frame).
+     */
+    private final AtomicIntegerArray slotCards;
+    private final AtomicIntegerArray tokens; // [slot * players + player] = 1 iff the token is placed
+    private final AtomicIntegerArray dirtyTokenSlots;
+    private final AtomicLong countdown = new AtomicLong(CLEAN); // millies << 1 | warn
+    private final AtomicLong elapsed = new AtomicLong(CLEAN);
+    private final AtomicLongArray freezes;
+    private final AtomicLongArray scores;
+
+    /**
+     * Update statistics.
+     */
+    private final LongAdder recordedUpdates = new LongAdder();
+    private volatile long appliedUpdates;
+    private volatile long frames;
+    private volatile int lastFrameUpdates;
+
+    public UserInterfaceDispatcher(UserInterfaceSwing ui, Config config) {
+        this.ui = ui;
+        this.config = config;
+
+        slotCards = new AtomicIntegerArray(config.tableSize);
+        for (int i = 0; i < config.tableSize; i++) slotCards.set(i, CLEAN_SLOT);
+        tokens = new AtomicIntegerArray(config.tableSize * config.players);
+        dirtyTokenSlots = new AtomicIntegerArray(config.tableSize);
+        freezes = new AtomicLongArray(config.players);
+        scores = new AtomicLongArray(config.players);
+        for (int i = 0; i < config.players; i++) {
+            freezes.set(i, CLEAN);
+            scores.set(i, CLEAN);
+        }
+
+        timer = new Timer(Math.max(1, 1000 / Math.max(1, config.uiFrameRate)), e -> flush());
+        timer.setCoalesce(true);
+        timer.start();
+    }
+
+    /**
+     * Applies all the pending updates to the Swing user interface. Must be called from the event dispatch thread.
+     */
+    private void flush() {
+        int updates = 0;
+
+        // all the changed slots are drawn with a single repaint (EMPTY_SLOT draws an empty card)
+        int[] changedSlots = new int[config.tableSize];
+        int[] changedCards = new int[config.tableSize];
+        int changed = 0;
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            int card = slotCards.getAndSet(slot, CLEAN_SLOT);
+            if (card == CLEAN_SLOT) continue;
+            changedSlots[changed] = slot;
+            changedCards[changed++] = card;
+        }
+        if (changed > 0) {
+            ui.placeCards(Arrays.copyOf(changedCards, changed), Arrays.copyOf(changedSlots, changed));
+            updates += changed;
+        }
+
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            if (dirtyTokenSlots.getAndSet(slot, 0) == 0) continue;
+            boolean[] placed = new boolean[config.players];
+            for (int player = 0; player < config.players; player++)
+                placed[player] = tokens.get(slot * config.players + player) != 0;
+            ui.setTokens(slot, placed);
+            updates++;
+        }
+
+        long timerValue = countdown.getAndSet(CLEAN);
+        if (timerValue != CLEAN) {
+            ui.setCountdown(timerValue >> 1, (timerValue & 1L) != 0);
+            updates++;
+        }
+        timerValue = elapsed.getAndSet(CLEAN);
+        if (timerValue != CLEAN) {
+            ui.setElapsed(timerValue);
+            updates++;
+        }
+
+        for (int player = 0; player < config.players; player++) {
+            long freeze = freezes.getAndSet(player, CLEAN);
+            if (freeze != CLEAN) {
+                ui.setFreeze(player, freeze);
+                updates++;
+            }
+            long score = scores.getAndSet(player, CLEAN);
+            if (score != CLEAN) {
+                ui.setScore(player, (int) score);
+                updates++;
+            }
+        }
+
+        lastFrameUpdates = updates;
+        appliedUpdates += updates;
+        frames++;
+    }
+
+    private void setToken(int player, int slot, int placed) {
+        tokens.set(slot * config.players + player, placed);
+        dirtyTokenSlots.set(slot, 1);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        slotCards.set(slot, card);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        slotCards.set(slot, EMPTY_SLOT);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        for (int i = 0; i < slots.length; i++)
+            slotCards.set(slots[i], cards[i] < 0 ? EMPTY_SLOT : cards[i]);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void clearTable() {
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            slotCards.set(slot, EMPTY_SLOT);
+            for (int player = 0; player < config.players; player++)
+                setToken(player, slot, 0);
+        }
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; i++) {
+            for (int player = 0; player < config.players; player++)
+                setToken(player, slots[i], 0);
+            slotCards.set(slots[i], cards[i] < 0 ? EMPTY_SLOT : cards[i]);
+        }
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        setToken(player, slot, 1);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            for (int player = 0; player < config.players; player++)
+                setToken(player, slot, 0);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        for (int player = 0; player < config.players; player++)
+            setToken(player, slot, 0);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        setToken(player, slot, 0);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        countdown.set(millies << 1 | (warn ? 1L : 0L));
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        elapsed.set(millies);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        recordedUpdates.increment();
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        EventQueue.invokeLater(() -> {
+            flush();
+            ui.announceWinner(players);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        EventQueue.invokeLater(() -> {
+            timer.stop();
+            flush();
+            ui.dispose();
+        });
+    }
+
+    /**
+     * @return - the number of frames flushed so far.
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * @return - the number of Swing updates applied in the last frame.
+     */
+    public int lastFrameUpdates() {
+        return lastFrameUpdates;
+    }
+
+    /**
+     * @return - the number of updates recorded by the game threads so far.
+     */
+    public long recordedUpdates() {
+        return recordedUpdates.sum();
+    }
+
+    /**
+     * @return - the number of Swing updates applied so far (recorded - applied = updates collapsed within a frame).
+     */
+    public long appliedUpdates() {
+        return appliedUpdates;
+    }
+}
@@ -1,11 +1,8 @@
 package bguspl.set;
 
-import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
@@ -20,7 +17,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private final TimerPanel timerPanel;
     private final GamePanel gamePanel;
-    private final PlayersPanel playersPanel;
+    private final PlayersPanel playersPanel; // null if the scoreboard is used instead
+    private final ScoreboardPanel scoreboard; // null if the players panel is used instead
     private final WinnerPanel winnerPanel;
     private final Config config;
 
@@ -28,12 +26,19 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
 
-    public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+    public UserInterfaceSwing(Logger logger, Config config, Util util, KeyInput input) {
 
+        long start = System.nanoTime();
         this.config = config;
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
-        playersPanel = new PlayersPanel();
+        gamePanel = new GamePanel(logger, util);
+        if (config.players > config.scoreboardThreshold) {
+            playersPanel = null;
+            scoreboard = new ScoreboardPanel(config);
+        } else {
+            playersPanel = new PlayersPanel();
+            scoreboard = null;
+        }
         winnerPanel = new WinnerPanel();
 
         setLayout(new GridBagLayout());
@@ -48,7 +53,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gbc.gridy++;
         add(gamePanel, gbc);
         gbc.gridy++;
-        add(playersPanel, gbc);
+        add(playersPanel != null ? playersPanel : scoreboard, gbc);
         gbc.gridy++;
         add(winnerPanel, gbc);
         gbc.gridwidth = 1;
@@ -63,10 +68,13 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        addKeyListener(new InputManager(logger, config, players));
+        addKeyListener(new InputManager(logger, config, input));
         addWindowListener(new WindowManager());
 
-        EventQueue.invokeLater(() -> setVisible(true));
+        EventQueue.invokeLater(() -> {
+            setVisible(true);
+            logger.info("user interface started in " + (System.nanoTime() - start) / 1_000_000L + " ms.");
+        });
     }
 
     private class TimerPanel extends JPanel {
@@ -102,39 +110,32 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
+        private static final int EMPTY = -1;
+
+        private final CardSource images;
+        private final int[][] grid; // card id per cell (EMPTY if none)
         private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
-        private GamePanel() {
+        private GamePanel(Logger logger, Util util) {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            if (useCardImages()) {
+                // the images are loaded in the background, cells are repainted once their card is decoded
+                images = new CardImages(config, logger, this::repaint);
+            } else {
+                logger.info("drawing the cards procedurally.");
+                images = new CardRenderer(config, util);
+            }
 
-            grid = new Image[config.rows][config.columns];
+            grid = new int[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
             playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = EMPTY;
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -148,10 +149,21 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
+        /**
+         * @return - true iff the cards should be drawn from the png files rather than procedurally.
+         */
+        private boolean useCardImages() {
+            if (config.cardRendering.equals("procedural")) return false;
+            if (config.cardRendering.equals("images")) return true;
+            // auto: the images, if there is a png file for every card of this deck
+            return config.featureSize < 10 // otherwise there will be naming conflicts
+                    && getClass().getClassLoader().getResource("cards/" + intInBaseToPaddedString(config.deckSize - 1, config.featureCount, config.featureSize) + ".png") != null;
+        }
+
         private void placeCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
+            grid[row][column] = card;
             validate();
             repaint();
         }
@@ -159,7 +171,39 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         private void removeCard(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = emptyCard;
+            grid[row][column] = EMPTY;
+            validate();
+            repaint();
+        }
+
+        private void placeCards(int[] cards, int[] slots) {
+            for (int i = 0; i < slots.length; i++) // a negative card id draws an empty card
+                grid[slots[i] / config.columns][slots[i] % config.columns] = Math.max(cards[i], EMPTY);
+            validate();
+            repaint();
+        }
+
+        private void clearTable() {
+            for (int row = 0; row < config.rows; row++)
+                for (int column = 0; column < config.columns; column++) {
+                    grid[row][column] = EMPTY;
+                    for (int player = 0; player < playerTokens.length; player++)
+                        playerTokens[player][row][column] = false;
+                    tokenText[row][column].setText("");
+                }
+            validate();
+            repaint();
+        }
+
+        private void replaceSlots(int[] slots, int[] cards) {
+            for (int i = 0; i < slots.length; i++) {
+                int row = slots[i] / config.columns;
+                int column = slots[i] % config.columns;
+                grid[row][column] = Math.max(cards[i], EMPTY);
+                for (int player = 0; player < playerTokens.length; player++)
+                    playerTokens[player][row][column] = false;
+                tokenText[row][column].setText("");
+            }
             validate();
             repaint();
         }
@@ -192,6 +236,14 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             tokenText[row][column].setText(generatePlayersTokenText(row, column));
         }
 
+        private void setTokens(int slot, boolean[] placed) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            for (int player = 0; player < placed.length; player++)
+                playerTokens[player][row][column] = placed[player];
+            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+        }
+
         private String generatePlayersTokenText(int row, int column) {
             String text = "";
             for (int player = 0; player < config.players; player++) {
@@ -208,7 +260,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             // draw card images
             for (int row = 0; row < config.rows; row++)
                 for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+                    g.drawImage(images.get(grid[row][column]), (column * config.cellWidth), (row * config.cellHeight), this);
         }
     }
 
@@ -284,6 +336,21 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel.removeCard(slot);
     }
 
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        gamePanel.placeCards(cards, slots);
+    }
+
+    @Override
+    public void clearTable() {
+        gamePanel.clearTable();
+    }
+
+    @Override
+    public void replaceSlots(int[] slots, int[] cards) {
+        gamePanel.replaceSlots(slots, cards);
+    }
+
     @Override
     public void placeToken(int player, int slot) {
         gamePanel.placeToken(player, slot);
@@ -304,6 +371,15 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel.removeToken(player, slot);
     }
 
+    /**
+     * Set the tokens of all players in the specified slot at once (used by the frame dispatcher).
+     * @param slot   - the slot number (for grid; slot = row*row.length + column).
+     * @param placed - placed[player] is true iff the player has a token in the slot.
+     */
+    void setTokens(int slot, boolean[] placed) {
+        gamePanel.setTokens(slot, placed);
+    }
+
     @Override
     public void setCountdown(long millies, boolean warn) {
         timerPanel.setCountdown(millies, warn);
@@ -316,23 +392,27 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        if (playersPanel != null) playersPanel.setFreeze(player, millies);
+        else scoreboard.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        if (playersPanel != null) playersPanel.setScore(player, score);
+        else scoreboard.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
+        if (playersPanel != null) playersPanel.setVisible(false);
+        else scoreboard.setVisible(false);
         winnerPanel.announceWinner(players);
         winnerPanel.setVisible(true);
     }
 
     @Override
     public void dispose() {
+        gamePanel.images.dispose();
         super.dispose();
     }
 }